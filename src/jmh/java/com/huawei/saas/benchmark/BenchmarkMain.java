@@ -0,0 +1,71 @@
+/*
+ * Copyright 2022. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.huawei.saas.benchmark;
+
+import com.huawei.saas.config.dynamicdatasource.StartupBenchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.util.regex.Pattern;
+
+/**
+ * 基准测试入口，依次以各线程数运行吞吐量基准，附带GC profiler输出每次操作的分配量；
+ * 启动耗时基准单独以单线程运行，基准名正则包含StartupBenchmark时只运行启动耗时基准
+ * 参数：[基准名正则，默认全部] [线程数列表，默认1,4,16]
+ *
+ * @since 2022-4-22
+ */
+public final class BenchmarkMain {
+    private static final String STARTUP = "StartupBenchmark";
+
+    private BenchmarkMain() {
+    }
+
+    /**
+     * 入口
+     *
+     * @param args 参数
+     * @throws RunnerException 运行异常
+     */
+    public static void main(String[] args) throws RunnerException {
+        String include = args.length > 0 && !args[0].isEmpty() ? args[0] : "com\\.huawei\\.saas\\..*";
+        String threads = args.length > 1 ? args[1] : "1,4,16";
+        if (!include.contains(STARTUP)) {
+            for (String thread : threads.split(",")) {
+                new Runner(new OptionsBuilder()
+                    .include(include)
+                    .exclude(STARTUP)
+                    .threads(Integer.parseInt(thread.trim()))
+                    .forks(1)
+                    .warmupIterations(3)
+                    .warmupTime(TimeValue.seconds(1L))
+                    .measurementIterations(5)
+                    .measurementTime(TimeValue.seconds(1L))
+                    .addProfiler(GCProfiler.class)
+                    .build()).run();
+            }
+        }
+        if (Pattern.compile(include).matcher(StartupBenchmark.class.getName()).find()) {
+            new Runner(new OptionsBuilder().include(StartupBenchmark.class.getName()).forks(1).threads(1).build())
+                .run();
+        }
+    }
+}
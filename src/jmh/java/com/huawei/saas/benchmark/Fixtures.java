@@ -0,0 +1,159 @@
+/*
+ * Copyright 2022. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.huawei.saas.benchmark;
+
+import com.huawei.saas.config.binding.DefaultDataSourceBindingStrategy;
+import com.huawei.saas.config.binding.DefaultSchemaBindingStrategy;
+import com.huawei.saas.config.dynamicdatasource.DynamicRoutingDataSource;
+import com.huawei.saas.dbpool.creator.DataSourceCreator;
+import com.huawei.saas.properties.DataSourceBindingProperty;
+import com.huawei.saas.properties.DataSourceProperty;
+import com.huawei.saas.properties.DynamicSourceProperties;
+import com.huawei.saas.properties.MasterSlaveProperty;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+/**
+ * 基准测试与压测共用的配置构造
+ *
+ * @since 2022-4-22
+ */
+public final class Fixtures {
+    private Fixtures() {
+    }
+
+    /**
+     * 组名
+     *
+     * @param index 下标
+     * @return 组名
+     */
+    public static String groupName(int index) {
+        return "group" + index;
+    }
+
+    /**
+     * 租户标识
+     *
+     * @param index 下标
+     * @return 租户标识
+     */
+    public static String tenant(int index) {
+        return "tenant" + index;
+    }
+
+    /**
+     * 构造groups个数据源组、tenants个租户的配置，租户按下标轮流绑定到各组，schema与租户同名
+     *
+     * @param groups 数据源组数量
+     * @param slaves 每组从库数量
+     * @param tenants 租户数量
+     * @param url 按组下标与库下标生成连接地址，库下标0为主库
+     * @return 配置
+     */
+    public static DynamicSourceProperties properties(int groups, int slaves, int tenants,
+        IntFunction<IntFunction<String>> url) {
+        DynamicSourceProperties properties = new DynamicSourceProperties();
+        Map<String, MasterSlaveProperty> dataSourceMap = new HashMap<>(groups * 2);
+        for (int i = 0; i < groups; i++) {
+            MasterSlaveProperty group = new MasterSlaveProperty();
+            group.setGroupName(groupName(i));
+            group.setMaster(member(url.apply(i).apply(0)));
+            List<DataSourceProperty> slaveList = new ArrayList<>(slaves);
+            for (int j = 1; j <= slaves; j++) {
+                slaveList.add(member(url.apply(i).apply(j)));
+            }
+            group.setSlave(slaveList);
+            dataSourceMap.put(group.getGroupName(), group);
+        }
+        properties.setDataSourceMap(dataSourceMap);
+        Map<String, DataSourceBindingProperty> bindingMap = new HashMap<>(tenants * 2);
+        for (int i = 0; i < tenants; i++) {
+            bindingMap.put(tenant(i), new DataSourceBindingProperty().setGroupName(groupName(i % groups))
+                .setSchema(tenant(i)));
+        }
+        properties.setBindingMap(bindingMap);
+        return properties;
+    }
+
+    /**
+     * 不连接数据库的配置，连接地址只用于区分数据源
+     *
+     * @param groups 数据源组数量
+     * @param slaves 每组从库数量
+     * @param tenants 租户数量
+     * @return 配置
+     */
+    public static DynamicSourceProperties stubProperties(int groups, int slaves, int tenants) {
+        return properties(groups, slaves, tenants,
+            group -> member -> "jdbc:stub://" + groupName(group) + "/db" + member);
+    }
+
+    private static DataSourceProperty member(String url) {
+        DataSourceProperty property = new DataSourceProperty();
+        property.setUrl(url);
+        property.setUsername("sa");
+        property.setPassword("");
+        return property;
+    }
+
+    /**
+     * 在spring容器外创建路由数据源，注入默认的绑定策略
+     *
+     * @param creator 数据源创建器
+     * @param properties 配置
+     * @return 路由数据源
+     */
+    public static DynamicRoutingDataSource dataSource(DataSourceCreator creator, DynamicSourceProperties properties) {
+        DynamicRoutingDataSource dataSource = new DynamicRoutingDataSource(Collections.singletonList(creator),
+            properties);
+        DefaultSchemaBindingStrategy schemaBindingStrategy = new DefaultSchemaBindingStrategy();
+        inject(schemaBindingStrategy, "dynamicSourceProperties", properties);
+        inject(dataSource, "schemaBindingStrategy", schemaBindingStrategy);
+        inject(dataSource, "dataSourceBindingStrategy", new DefaultDataSourceBindingStrategy());
+        return dataSource;
+    }
+
+    /**
+     * 设置字段，用于在spring容器外组装依赖注入的对象
+     *
+     * @param target 对象
+     * @param name 字段名
+     * @param value 值
+     */
+    public static void inject(Object target, String name, Object value) {
+        for (Class<?> type = target.getClass(); type != null; type = type.getSuperclass()) {
+            try {
+                Field field = type.getDeclaredField(name);
+                field.setAccessible(true);
+                field.set(target, value);
+                return;
+            } catch (NoSuchFieldException e) {
+                // 在父类中查找
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        throw new IllegalArgumentException("No field " + name + " in " + target.getClass());
+    }
+}
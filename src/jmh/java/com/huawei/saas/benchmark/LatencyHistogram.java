@@ -0,0 +1,116 @@
+/*
+ * Copyright 2022. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.huawei.saas.benchmark;
+
+/**
+ * 对数线性分桶的延迟直方图，每个2的幂区间再均分16个子桶，相对误差不超过1/16
+ * 非线程安全，每个压测线程单独记录，结束后合并
+ *
+ * @since 2022-4-22
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 4;
+
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private final long[] counts = new long[64 * SUB_BUCKETS];
+
+    private long total;
+
+    private long max;
+
+    /**
+     * 记录一次耗时
+     *
+     * @param nanos 耗时，纳秒
+     */
+    public void record(long nanos) {
+        long value = Math.max(nanos, 0L);
+        counts[index(value)]++;
+        total++;
+        max = Math.max(max, value);
+    }
+
+    /**
+     * 合并其他直方图
+     *
+     * @param other 其他直方图
+     */
+    public void merge(LatencyHistogram other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        total += other.total;
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * 记录次数
+     *
+     * @return 次数
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * 最大耗时
+     *
+     * @return 纳秒
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * 分位耗时，取所在桶的上界
+     *
+     * @param percentile 分位，0到1之间
+     * @return 纳秒
+     */
+    public long percentile(double percentile) {
+        if (total == 0L) {
+            return 0L;
+        }
+        long rank = Math.max((long) Math.ceil(total * percentile), 1L);
+        long seen = 0L;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(upperBound(i), max);
+            }
+        }
+        return max;
+    }
+
+    private static int index(long value) {
+        if (value < SUB_BUCKETS * 2) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return shift * SUB_BUCKETS + (int) (value >>> shift);
+    }
+
+    private static long upperBound(int index) {
+        if (index < SUB_BUCKETS * 2) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long mantissa = index % SUB_BUCKETS + SUB_BUCKETS;
+        return ((mantissa + 1) << shift) - 1;
+    }
+}
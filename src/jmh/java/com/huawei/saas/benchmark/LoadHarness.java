@@ -0,0 +1,410 @@
+/*
+ * Copyright 2022. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.huawei.saas.benchmark;
+
+import com.huawei.saas.config.dynamicdatasource.DynamicRoutingDataSource;
+import com.huawei.saas.constants.Constants;
+import com.huawei.saas.dbpool.creator.HikariDataSourceCreator;
+import com.huawei.saas.interceptor.MybatisReadWriteSeparationInterceptor;
+import com.huawei.saas.interceptor.TenantDomainInterceptor;
+import com.huawei.saas.properties.DataSourceBindingProperty;
+import com.huawei.saas.properties.DataSourceProperty;
+import com.huawei.saas.properties.DynamicSourceProperties;
+import com.huawei.saas.properties.MasterSlaveProperty;
+
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.springframework.cloud.context.scope.refresh.RefreshScopeRefreshedEvent;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * 多租户端到端压测，以内存H2库充当各数据源组的主从库，不依赖外部数据库
+ * 请求经 TenantDomainInterceptor 设置租户，通过mybatis读写分离拦截器与 DynamicRoutingDataSource 访问数据库，
+ * 依次运行预热、稳定、并发刷新三个阶段，分别输出吞吐量、p50/p99/p999延迟与错误数
+ * 并发刷新阶段每次刷新轮流为一个数据源组增删从库，未开启schema隔离时同时将所有租户轮换绑定到下一个数据源组
+ * 参数（--key=value）：groups、slaves、tenants、threads、pool-size、warmup、duration（秒）、write-ratio、
+ * skew（租户访问倾斜度，1为均匀，越大越集中于少数租户）、refresh-interval（毫秒）、schema-isolation
+ *
+ * @since 2022-4-22
+ */
+public final class LoadHarness {
+    private static final String WARMUP = "warmup";
+
+    private static final String STEADY = "steady";
+
+    private static final String REFRESH = "refresh";
+
+    private final int groups;
+
+    private final int slaves;
+
+    private final int tenants;
+
+    private final int threads;
+
+    private final int poolSize;
+
+    private final long warmupSeconds;
+
+    private final long durationSeconds;
+
+    private final double writeRatio;
+
+    private final double skew;
+
+    private final long refreshInterval;
+
+    private final boolean schemaIsolation;
+
+    private final String[] tenantNames;
+
+    private volatile String phase = WARMUP;
+
+    private volatile boolean running = true;
+
+    private LoadHarness(Map<String, String> options) {
+        this.groups = Integer.parseInt(options.getOrDefault("groups", "8"));
+        this.slaves = Integer.parseInt(options.getOrDefault("slaves", "1"));
+        this.tenants = Integer.parseInt(options.getOrDefault("tenants", "1000"));
+        this.threads = Integer.parseInt(options.getOrDefault("threads", "32"));
+        this.poolSize = Integer.parseInt(options.getOrDefault("pool-size", "10"));
+        this.warmupSeconds = Long.parseLong(options.getOrDefault("warmup", "5"));
+        this.durationSeconds = Long.parseLong(options.getOrDefault("duration", "20"));
+        this.writeRatio = Double.parseDouble(options.getOrDefault("write-ratio", "0.2"));
+        this.skew = Math.max(Double.parseDouble(options.getOrDefault("skew", "1")), 1D);
+        this.refreshInterval = Long.parseLong(options.getOrDefault("refresh-interval", "500"));
+        this.schemaIsolation = Boolean.parseBoolean(options.getOrDefault("schema-isolation", "false"));
+        this.tenantNames = new String[tenants];
+        for (int i = 0; i < tenants; i++) {
+            tenantNames[i] = Fixtures.tenant(i);
+        }
+    }
+
+    /**
+     * 入口
+     *
+     * @param args 参数
+     * @throws Exception 异常
+     */
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>(16);
+        for (String arg : args) {
+            String[] pair = arg.replaceFirst("^--", "").split("=", 2);
+            options.put(pair[0], pair.length > 1 ? pair[1] : "true");
+        }
+        new LoadHarness(options).run();
+    }
+
+    /**
+     * 账户读写
+     */
+    public interface AccountMapper {
+        /**
+         * 查询余额
+         *
+         * @param tenant 租户标识
+         * @param id 账户
+         * @return 余额
+         */
+        @Select("SELECT balance FROM account WHERE tenant = #{tenant} AND id = #{id}")
+        Long balance(@Param("tenant") String tenant, @Param("id") int id);
+
+        /**
+         * 写入余额
+         *
+         * @param tenant 租户标识
+         * @param id 账户
+         * @param balance 余额
+         * @return 影响行数
+         */
+        @Update("MERGE INTO account (tenant, id, balance) KEY (tenant, id) VALUES (#{tenant}, #{id}, #{balance})")
+        int save(@Param("tenant") String tenant, @Param("id") int id, @Param("balance") long balance);
+    }
+
+    private static String url(int group, int member) {
+        return "jdbc:h2:mem:" + Fixtures.groupName(group) + "_db" + member + ";DB_CLOSE_DELAY=-1";
+    }
+
+    private void run() throws Exception {
+        DynamicSourceProperties properties = Fixtures.properties(groups, slaves, tenants,
+            group -> member -> url(group, member));
+        Map<String, Map<String, Object>> pools = new HashMap<>(2);
+        pools.put("hikari", Collections.singletonMap("maximumPoolSize", poolSize));
+        properties.setPools(pools);
+        properties.getDataSourceMap().values().forEach(group -> group.setModifyEnable(true)
+            .setSchemaIsolationEnable(schemaIsolation));
+        createDatabases(properties);
+        DynamicRoutingDataSource dataSource = Fixtures.dataSource(new HikariDataSourceCreator(), properties);
+        Configuration configuration = new Configuration(
+            new Environment("load", new JdbcTransactionFactory(), dataSource));
+        configuration.addMapper(AccountMapper.class);
+        configuration.addInterceptor(new MybatisReadWriteSeparationInterceptor());
+        SqlSessionFactory sessionFactory = new SqlSessionFactoryBuilder().build(configuration);
+
+        System.out.printf(Locale.ENGLISH, "groups=%d slaves=%d tenants=%d threads=%d pool-size=%d write-ratio=%.2f"
+                + " skew=%.1f refresh-interval=%dms schema-isolation=%s%n", groups, slaves, tenants, threads, poolSize,
+            writeRatio, skew, refreshInterval, schemaIsolation);
+        List<Worker> workers = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            Worker worker = new Worker(sessionFactory);
+            workers.add(worker);
+            worker.start();
+        }
+        TimeUnit.SECONDS.sleep(warmupSeconds);
+        phase = STEADY;
+        TimeUnit.SECONDS.sleep(durationSeconds);
+        Refresher refresher = new Refresher(dataSource, properties);
+        phase = REFRESH;
+        refresher.start();
+        TimeUnit.SECONDS.sleep(durationSeconds);
+        running = false;
+        refresher.join();
+        for (Worker worker : workers) {
+            worker.join();
+        }
+        dataSource.destroy();
+
+        System.out.printf(Locale.ENGLISH, "%-8s %10s %10s %10s %10s %10s %10s %8s%n", "phase", "requests", "ops/s",
+            "p50(us)", "p99(us)", "p999(us)", "max(us)", "errors");
+        report(STEADY, workers);
+        report(REFRESH, workers);
+        System.out.printf(Locale.ENGLISH, "refreshes=%d avg=%.1fms max=%.1fms%n", refresher.refreshes.getTotal(),
+            refresher.refreshes.getTotal() == 0L ? 0D : refresher.elapsed.sum() / 1e6 / refresher.refreshes.getTotal(),
+            refresher.refreshes.getMax() / 1e6);
+    }
+
+    private void report(String name, List<Worker> workers) {
+        LatencyHistogram merged = new LatencyHistogram();
+        Map<String, Long> errors = new TreeMap<>();
+        for (Worker worker : workers) {
+            merged.merge(worker.latencies.get(name));
+            worker.errors.getOrDefault(name, Collections.emptyMap())
+                .forEach((type, count) -> errors.merge(type, count.sum(), Long::sum));
+        }
+        long errorCount = errors.values().stream().mapToLong(Long::longValue).sum();
+        System.out.printf(Locale.ENGLISH, "%-8s %10d %10.0f %10.1f %10.1f %10.1f %10.1f %8d%n", name,
+            merged.getTotal(), (merged.getTotal() + errorCount) / (double) durationSeconds,
+            merged.percentile(0.5D) / 1e3, merged.percentile(0.99D) / 1e3, merged.percentile(0.999D) / 1e3,
+            merged.getMax() / 1e3, errorCount);
+        errors.forEach((type, count) -> System.out.printf(Locale.ENGLISH, "  %s: %d%n", type, count));
+    }
+
+    /**
+     * 建库建表，开启schema隔离时在租户绑定的数据源组各库中创建租户schema
+     *
+     * @param properties 配置
+     * @throws SQLException 异常
+     */
+    private void createDatabases(DynamicSourceProperties properties) throws SQLException {
+        for (int group = 0; group < groups; group++) {
+            // 最后一个库为刷新阶段增删的从库
+            for (int member = 0; member <= slaves + 1; member++) {
+                try (Connection connection = DriverManager.getConnection(url(group, member), "sa", "");
+                    Statement statement = connection.createStatement()) {
+                    statement.execute(createTable("PUBLIC"));
+                    if (!schemaIsolation) {
+                        continue;
+                    }
+                    for (int tenant = group; tenant < tenants; tenant += groups) {
+                        statement.execute("CREATE SCHEMA IF NOT EXISTS \"" + tenantNames[tenant] + "\"");
+                        statement.execute(createTable(tenantNames[tenant]));
+                    }
+                }
+            }
+        }
+    }
+
+    private static String createTable(String schema) {
+        return "CREATE TABLE IF NOT EXISTS \"" + schema + "\".ACCOUNT (tenant VARCHAR(64), id INT,"
+            + " balance BIGINT, PRIMARY KEY (tenant, id))";
+    }
+
+    private int nextTenant() {
+        double random = ThreadLocalRandom.current().nextDouble();
+        return Math.min((int) (Math.pow(random, skew) * tenants), tenants - 1);
+    }
+
+    private static HttpServletRequest request(String tenant) {
+        return (HttpServletRequest) Proxy.newProxyInstance(LoadHarness.class.getClassLoader(),
+            new Class<?>[] {HttpServletRequest.class},
+            (proxy, method, args) -> "getHeader".equals(method.getName()) && Constants.TENANT_DOMAIN.equals(args[0])
+                ? tenant
+                : null);
+    }
+
+    /**
+     * 压测线程，模拟一次web请求：设置租户后执行一条读或写语句
+     */
+    private final class Worker extends Thread {
+        private final SqlSessionFactory sessionFactory;
+
+        private final TenantDomainInterceptor interceptor = new TenantDomainInterceptor();
+
+        private final Map<String, LatencyHistogram> latencies = new HashMap<>(4);
+
+        private final Map<String, Map<String, LongAdder>> errors = new ConcurrentHashMap<>(4);
+
+        private Worker(SqlSessionFactory sessionFactory) {
+            super("load-worker");
+            this.sessionFactory = sessionFactory;
+            latencies.put(WARMUP, new LatencyHistogram());
+            latencies.put(STEADY, new LatencyHistogram());
+            latencies.put(REFRESH, new LatencyHistogram());
+        }
+
+        @Override
+        public void run() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            while (running) {
+                String current = phase;
+                String tenant = tenantNames[nextTenant()];
+                HttpServletRequest request = request(tenant);
+                long start = System.nanoTime();
+                Exception failure = null;
+                interceptor.preHandle(request, null, null);
+                try (SqlSession session = sessionFactory.openSession(true)) {
+                    AccountMapper mapper = session.getMapper(AccountMapper.class);
+                    int id = random.nextInt(16);
+                    if (random.nextDouble() < writeRatio) {
+                        mapper.save(tenant, id, random.nextLong());
+                    } else {
+                        mapper.balance(tenant, id);
+                    }
+                } catch (RuntimeException e) {
+                    failure = e;
+                } finally {
+                    interceptor.afterCompletion(request, null, null, failure);
+                }
+                if (failure == null) {
+                    latencies.get(current).record(System.nanoTime() - start);
+                } else {
+                    errors.computeIfAbsent(current, key -> new ConcurrentHashMap<>(4))
+                        .computeIfAbsent(rootCause(failure), key -> new LongAdder())
+                        .increment();
+                }
+            }
+        }
+
+        private String rootCause(Throwable failure) {
+            Throwable cause = failure;
+            while (cause.getCause() != null && cause.getCause() != cause) {
+                cause = cause.getCause();
+            }
+            return cause.getClass().getSimpleName() + ": " + cause.getMessage();
+        }
+    }
+
+    /**
+     * 刷新线程，模拟配置中心推送：每次替换配置后调用refresh
+     */
+    private final class Refresher extends Thread {
+        private final DynamicRoutingDataSource dataSource;
+
+        private final DynamicSourceProperties properties;
+
+        private final LatencyHistogram refreshes = new LatencyHistogram();
+
+        private final LongAdder elapsed = new LongAdder();
+
+        private Refresher(DynamicRoutingDataSource dataSource, DynamicSourceProperties properties) {
+            super("load-refresher");
+            this.dataSource = dataSource;
+            this.properties = properties;
+        }
+
+        @Override
+        public void run() {
+            int round = 0;
+            while (running && refreshInterval > 0L) {
+                mutate(round++);
+                long start = System.nanoTime();
+                dataSource.refresh(new RefreshScopeRefreshedEvent());
+                long cost = System.nanoTime() - start;
+                refreshes.record(cost);
+                elapsed.add(cost);
+                try {
+                    TimeUnit.MILLISECONDS.sleep(refreshInterval);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+
+        /**
+         * 按配置中心的方式整体替换配置：轮到的数据源组增删一个从库，未开启schema隔离时租户整体轮换到下一个组
+         *
+         * @param round 刷新轮次
+         */
+        private void mutate(int round) {
+            int target = round % groups;
+            Map<String, MasterSlaveProperty> dataSourceMap = new HashMap<>(properties.getDataSourceMap());
+            MasterSlaveProperty current = dataSourceMap.get(Fixtures.groupName(target));
+            List<DataSourceProperty> slaveList = new ArrayList<>(current.getSlave());
+            String extra = url(target, slaves + 1);
+            if (!slaveList.removeIf(slave -> extra.equals(slave.getUrl()))) {
+                DataSourceProperty slave = new DataSourceProperty();
+                slave.setUrl(extra);
+                slave.setUsername("sa");
+                slave.setPassword("");
+                slaveList.add(slave);
+            }
+            MasterSlaveProperty replaced = new MasterSlaveProperty();
+            replaced.setGroupName(current.getGroupName());
+            replaced.setModifyEnable(true);
+            replaced.setSchemaIsolationEnable(schemaIsolation);
+            replaced.setMaster(current.getMaster());
+            replaced.setSlave(slaveList);
+            dataSourceMap.put(replaced.getGroupName(), replaced);
+            properties.setDataSourceMap(dataSourceMap);
+            if (schemaIsolation) {
+                return;
+            }
+            Map<String, DataSourceBindingProperty> bindingMap = new HashMap<>(tenants * 2);
+            for (int i = 0; i < tenants; i++) {
+                bindingMap.put(tenantNames[i], new DataSourceBindingProperty()
+                    .setGroupName(Fixtures.groupName((i + round + 1) % groups)).setSchema(tenantNames[i]));
+            }
+            properties.setBindingMap(bindingMap);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2022. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.huawei.saas.benchmark;
+
+import java.io.PrintWriter;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+import javax.sql.DataSource;
+
+/**
+ * 不连接数据库的数据源，每次返回同一个空实现的连接，统计catalog与schema的读写次数，
+ * 用于测量路由本身的开销及schema切换产生的数据库交互次数
+ *
+ * @since 2022-4-22
+ */
+public class StubDataSource implements DataSource {
+    private final LongAdder roundTrips = new LongAdder();
+
+    private final Connection connection;
+
+    private volatile String catalog;
+
+    /**
+     * 构造器
+     *
+     * @param catalog 连接初始的catalog
+     */
+    public StubDataSource(String catalog) {
+        this.catalog = catalog;
+        this.connection = (Connection) Proxy.newProxyInstance(StubDataSource.class.getClassLoader(),
+            new Class<?>[] {Connection.class}, (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "setCatalog":
+                    case "setSchema":
+                        roundTrips.increment();
+                        this.catalog = (String) args[0];
+                        return null;
+                    case "getCatalog":
+                    case "getSchema":
+                        roundTrips.increment();
+                        return this.catalog;
+                    case "isWrapperFor":
+                        return false;
+                    case "isValid":
+                        return true;
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    default:
+                        return null;
+                }
+            });
+    }
+
+    /**
+     * catalog与schema的读写次数，对应真实驱动的数据库交互次数
+     *
+     * @return 次数
+     */
+    public long getRoundTrips() {
+        return roundTrips.sum();
+    }
+
+    @Override
+    public Connection getConnection() {
+        return connection;
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) {
+        return connection;
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        throw new SQLException("Not a wrapper for " + iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return false;
+    }
+
+    @Override
+    public PrintWriter getLogWriter() {
+        return null;
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) {
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) {
+    }
+
+    @Override
+    public int getLoginTimeout() {
+        return 0;
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2022. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.huawei.saas.benchmark;
+
+import com.huawei.saas.constants.DbPoolEnum;
+import com.huawei.saas.dbpool.creator.DataSourceCreator;
+import com.huawei.saas.properties.DataSourceProperty;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.sql.DataSource;
+
+/**
+ * 创建 {@link StubDataSource} 的创建器，以hikari的名义注册，替换真实连接池
+ * 可设置创建耗时，模拟连接池初始化时与数据库的握手
+ *
+ * @since 2022-4-22
+ */
+public class StubDataSourceCreator implements DataSourceCreator {
+    private final long createDelayMillis;
+
+    private final AtomicInteger created = new AtomicInteger();
+
+    /**
+     * 构造器
+     *
+     * @param createDelayMillis 每个数据源的创建耗时，毫秒
+     */
+    public StubDataSourceCreator(long createDelayMillis) {
+        this.createDelayMillis = createDelayMillis;
+    }
+
+    @Override
+    public DataSource createDataSource(DataSourceProperty dataSourceProperty) {
+        if (createDelayMillis > 0) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(createDelayMillis));
+        }
+        created.incrementAndGet();
+        return new StubDataSource(null);
+    }
+
+    @Override
+    public boolean close(DataSource dataSource) {
+        return true;
+    }
+
+    @Override
+    public String getPoolName() {
+        return DbPoolEnum.POOL_HIKARI.getName();
+    }
+
+    /**
+     * 已创建的数据源数量
+     *
+     * @return 数量
+     */
+    public int getCreated() {
+        return created.get();
+    }
+}
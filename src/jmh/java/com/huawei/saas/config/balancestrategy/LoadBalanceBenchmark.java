@@ -0,0 +1,88 @@
+/*
+ * Copyright 2022. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.huawei.saas.config.balancestrategy;
+
+import com.huawei.saas.benchmark.StubDataSource;
+import com.huawei.saas.config.dynamicdatasource.SnapshotDataSource;
+import com.huawei.saas.properties.DataSourceProperty;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 负载均衡策略的选取开销
+ *
+ * @since 2022-4-22
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LoadBalanceBenchmark {
+    @Param({"2", "8", "32"})
+    private int members;
+
+    private final RandomLoadBalanceStrategy random = new RandomLoadBalanceStrategy();
+
+    private SnapshotDataSource[] candidates;
+
+    private List<SnapshotDataSource> candidateList;
+
+    /**
+     * 准备候选数据源
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        candidates = new SnapshotDataSource[members];
+        for (int i = 0; i < members; i++) {
+            DataSourceProperty property = new DataSourceProperty();
+            property.setUrl("jdbc:stub://member" + i);
+            candidates[i] = new SnapshotDataSource(property, new StubDataSource(null), false);
+        }
+        candidateList = Arrays.asList(candidates);
+    }
+
+    /**
+     * 从数组选取，路由使用的方式
+     *
+     * @return 数据源
+     */
+    @Benchmark
+    public SnapshotDataSource randomArray() {
+        return random.get(candidates);
+    }
+
+    /**
+     * 从列表选取，自定义策略的兼容方式
+     *
+     * @return 数据源
+     */
+    @Benchmark
+    public SnapshotDataSource randomList() {
+        return random.get(candidateList);
+    }
+}
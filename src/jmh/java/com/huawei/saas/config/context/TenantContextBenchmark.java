@@ -0,0 +1,83 @@
+/*
+ * Copyright 2022. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.huawei.saas.config.context;
+
+import com.huawei.saas.benchmark.Fixtures;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TenantContext 设置与读取租户标识的开销
+ *
+ * @since 2022-4-22
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TenantContextBenchmark {
+    @Param({"10", "1000", "100000"})
+    private int tenants;
+
+    private String[] tenantNames;
+
+    private int next;
+
+    /**
+     * 准备租户标识
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        tenantNames = new String[tenants];
+        for (int i = 0; i < tenants; i++) {
+            tenantNames[i] = Fixtures.tenant(i);
+        }
+    }
+
+    /**
+     * 会话开始时设置租户，读取一次后结束会话
+     *
+     * @return 租户标识
+     */
+    @Benchmark
+    public String setAndGetDomain() {
+        TenantContext.setDomain(tenantNames[Math.floorMod(next++, tenants)], true);
+        String domain = TenantContext.getDomain();
+        TenantContext.remove();
+        return domain;
+    }
+
+    /**
+     * 读取租户标识
+     *
+     * @return 租户标识
+     */
+    @Benchmark
+    public String getDomain() {
+        TenantContext.setDomain(tenantNames[Math.floorMod(next++, tenants)], false);
+        return TenantContext.getDomain();
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2022. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.huawei.saas.config.dynamicdatasource;
+
+import com.huawei.saas.benchmark.StubDataSource;
+import com.huawei.saas.config.balancestrategy.LoadBalanceStrategy;
+import com.huawei.saas.config.balancestrategy.RandomLoadBalanceStrategy;
+import com.huawei.saas.config.context.TenantContext;
+import com.huawei.saas.constants.Constants;
+import com.huawei.saas.properties.DataSourceProperty;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * DataSourceGroup.getDataSource 的选库开销，配合GC profiler对比每次调用的分配量：
+ * legacyStreamSelection 为改为预过滤成员数组之前的实现，每次调用过滤并收集成员列表
+ *
+ * @since 2022-4-22
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DataSourceGroupBenchmark {
+    @Param({"1", "4", "16"})
+    private int slaves;
+
+    private DataSourceGroup group;
+
+    private final LoadBalanceStrategy loadBalanceStrategy = new RandomLoadBalanceStrategy();
+
+    private List<SnapshotDataSource> masterList;
+
+    private List<SnapshotDataSource> slaveList;
+
+    /**
+     * 创建数据源组
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        masterList = new ArrayList<>(1);
+        masterList.add(member("jdbc:stub://master"));
+        slaveList = new ArrayList<>(slaves);
+        for (int i = 0; i < slaves; i++) {
+            slaveList.add(member("jdbc:stub://slave" + i));
+        }
+        group = new DataSourceGroup("group0", false, loadBalanceStrategy, masterList, slaveList);
+        TenantContext.setDomain("tenant0", true);
+    }
+
+    private static SnapshotDataSource member(String url) {
+        DataSourceProperty property = new DataSourceProperty();
+        property.setUrl(url);
+        return new SnapshotDataSource(property, new StubDataSource(null), false);
+    }
+
+    /**
+     * 当前实现
+     *
+     * @return 数据源
+     */
+    @Benchmark
+    public SnapshotDataSource getDataSource() {
+        return group.getDataSource();
+    }
+
+    /**
+     * 原实现：每次调用过滤已关闭的主从成员并收集为新列表，再由负载均衡策略从列表选取
+     *
+     * @return 数据源
+     */
+    @Benchmark
+    public SnapshotDataSource legacyStreamSelection() {
+        String dbStrategy = TenantContext.getDbStrategyType();
+        List<SnapshotDataSource> masters = masterList.stream()
+            .filter(item -> !item.isClosed())
+            .collect(Collectors.toList());
+        List<SnapshotDataSource> slaves = slaveList.stream()
+            .filter(item -> !item.isClosed())
+            .collect(Collectors.toList());
+        boolean selectMaster = Constants.DB_MASTER.equalsIgnoreCase(dbStrategy) || slaves.isEmpty();
+        return loadBalanceStrategy.get(selectMaster ? masters : slaves);
+    }
+}
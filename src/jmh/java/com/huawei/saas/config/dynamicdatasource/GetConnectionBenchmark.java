@@ -0,0 +1,108 @@
+/*
+ * Copyright 2022. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.huawei.saas.config.dynamicdatasource;
+
+import com.huawei.saas.benchmark.Fixtures;
+import com.huawei.saas.benchmark.StubDataSourceCreator;
+import com.huawei.saas.config.context.TenantContext;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DynamicRoutingDataSource.getConnection 的路由开销，连接池为不连接数据库的空实现
+ *
+ * @since 2022-4-22
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class GetConnectionBenchmark {
+    @Param({"10", "1000", "100000"})
+    private int tenants;
+
+    @Param({"1", "16", "256"})
+    private int groups;
+
+    private DynamicRoutingDataSource dataSource;
+
+    private String[] tenantNames;
+
+    /**
+     * 创建数据源
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        dataSource = Fixtures.dataSource(new StubDataSourceCreator(0L), Fixtures.stubProperties(groups, 1, tenants));
+        tenantNames = new String[tenants];
+        for (int i = 0; i < tenants; i++) {
+            tenantNames[i] = Fixtures.tenant(i);
+        }
+    }
+
+    /**
+     * 关闭后台任务
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        dataSource.destroy();
+    }
+
+    /**
+     * 每个线程轮流使用的租户
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        /**
+         * 各线程从不同租户开始
+         */
+        @Setup(Level.Trial)
+        public void setUp() {
+            next = ThreadLocalRandom.current().nextInt(1 << 20);
+        }
+    }
+
+    /**
+     * 设置租户、路由、获取并归还连接
+     *
+     * @param cursor 租户游标
+     * @return 连接
+     * @throws SQLException 异常
+     */
+    @Benchmark
+    public Connection getConnection(Cursor cursor) throws SQLException {
+        TenantContext.setDomain(tenantNames[Math.floorMod(cursor.next++, tenants)], true);
+        Connection connection = dataSource.getConnection();
+        connection.close();
+        return connection;
+    }
+}
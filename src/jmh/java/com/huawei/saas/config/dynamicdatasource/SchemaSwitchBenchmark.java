@@ -0,0 +1,115 @@
+/*
+ * Copyright 2022. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.huawei.saas.config.dynamicdatasource;
+
+import com.huawei.saas.benchmark.StubDataSource;
+import com.huawei.saas.config.binding.CatalogSchemaSwitcher;
+import com.huawei.saas.config.binding.SchemaSession;
+import com.huawei.saas.config.binding.SchemaSwitcher;
+import com.huawei.saas.dbpool.PoolStatistics;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一次借出连接内执行多条语句时的schema切换次数，roundTrips与吞吐量单位相同，两者之比为每次借出的数据库交互次数：
+ * perStatement 为每条语句前直接setCatalog，tracked 为记录当前schema、相同时跳过的连接包装
+ *
+ * @since 2022-4-22
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SchemaSwitchBenchmark {
+    @Param({"1", "5", "20"})
+    private int statements;
+
+    private final SchemaSwitcher switcher = new CatalogSchemaSwitcher();
+
+    private StubDataSource dataSource;
+
+    private IdleSchemas idleSchemas;
+
+    /**
+     * 准备连接
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        dataSource = new StubDataSource("initial");
+        idleSchemas = new IdleSchemas();
+    }
+
+    /**
+     * 数据库交互次数
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class RoundTrips {
+        /**
+         * 累计交互次数
+         */
+        public long roundTrips;
+    }
+
+    /**
+     * 每条语句前直接切换
+     *
+     * @param counter 交互次数
+     * @throws SQLException 异常
+     */
+    @Benchmark
+    public void perStatement(RoundTrips counter) throws SQLException {
+        long before = dataSource.getRoundTrips();
+        Connection connection = dataSource.getConnection();
+        for (int i = 0; i < statements; i++) {
+            switcher.switchSchema(connection, "tenant0");
+        }
+        connection.close();
+        counter.roundTrips += dataSource.getRoundTrips() - before;
+    }
+
+    /**
+     * 通过记录schema的连接包装切换，连接池状态未知，归还时切回初始schema
+     *
+     * @param counter 交互次数
+     * @throws SQLException 异常
+     */
+    @Benchmark
+    public void tracked(RoundTrips counter) throws SQLException {
+        long before = dataSource.getRoundTrips();
+        Connection connection = SchemaTrackingConnection.wrap(dataSource.getConnection(), switcher,
+            PoolStatistics.UNKNOWN, idleSchemas);
+        SchemaSession session = connection.unwrap(SchemaSession.class);
+        for (int i = 0; i < statements; i++) {
+            session.switchSchema("tenant0");
+        }
+        connection.close();
+        counter.roundTrips += dataSource.getRoundTrips() - before;
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2022. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.huawei.saas.config.dynamicdatasource;
+
+import com.huawei.saas.benchmark.Fixtures;
+import com.huawei.saas.benchmark.StubDataSourceCreator;
+import com.huawei.saas.properties.DynamicSourceProperties;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 启动耗时随数据源组数量的变化，每个连接池的创建耗时固定为 {@link #CREATE_DELAY_MILLIS} 毫秒
+ *
+ * @since 2022-4-22
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class StartupBenchmark {
+    private static final long CREATE_DELAY_MILLIS = 5L;
+
+    @Param({"16", "64", "256"})
+    private int groups;
+
+    @Param({"1", "8", "32"})
+    private int initParallelism;
+
+    private DynamicSourceProperties properties;
+
+    private DynamicRoutingDataSource dataSource;
+
+    /**
+     * 准备配置
+     */
+    @Setup(Level.Iteration)
+    public void setUp() {
+        properties = Fixtures.stubProperties(groups, 1, groups);
+        properties.setInitParallelism(initParallelism);
+    }
+
+    /**
+     * 关闭后台任务
+     */
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        if (dataSource != null) {
+            dataSource.destroy();
+        }
+    }
+
+    /**
+     * 创建路由数据源，包含所有数据源组连接池的创建
+     *
+     * @return 路由数据源
+     */
+    @Benchmark
+    public DynamicRoutingDataSource startup() {
+        dataSource = new DynamicRoutingDataSource(
+            Collections.singletonList(new StubDataSourceCreator(CREATE_DELAY_MILLIS)), properties);
+        return dataSource;
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2022. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.huawei.saas.interceptor;
+
+import com.huawei.saas.benchmark.Fixtures;
+import com.huawei.saas.benchmark.StubDataSource;
+import com.huawei.saas.config.binding.SchemaBindingStrategy;
+import com.huawei.saas.config.context.TenantContext;
+
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * mybatis拦截器自身的开销，被拦截的执行器与语句处理器为空实现
+ *
+ * @since 2022-4-22
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class InterceptorBenchmark {
+    private final MybatisReadWriteSeparationInterceptor readWriteInterceptor =
+        new MybatisReadWriteSeparationInterceptor();
+
+    private final MybatisSchemaInterceptor schemaInterceptor = new MybatisSchemaInterceptor();
+
+    private Invocation query;
+
+    private Invocation update;
+
+    private Invocation prepare;
+
+    /**
+     * 构造拦截调用
+     *
+     * @throws NoSuchMethodException 异常
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws NoSuchMethodException {
+        SchemaBindingStrategy schemaBindingStrategy = key -> key;
+        Fixtures.inject(schemaInterceptor, "schemaBindingStrategy", schemaBindingStrategy);
+        Configuration configuration = new Configuration();
+        Executor executor = stub(Executor.class);
+        query = new Invocation(executor,
+            Executor.class.getMethod("query", MappedStatement.class, Object.class, RowBounds.class,
+                ResultHandler.class),
+            new Object[] {statement(configuration, "select", SqlCommandType.SELECT), null, RowBounds.DEFAULT, null});
+        update = new Invocation(executor, Executor.class.getMethod("update", MappedStatement.class, Object.class),
+            new Object[] {statement(configuration, "update", SqlCommandType.UPDATE), null});
+        Connection connection = new StubDataSource(null).getConnection();
+        prepare = new Invocation(stub(StatementHandler.class),
+            StatementHandler.class.getMethod("prepare", Connection.class, Integer.class),
+            new Object[] {connection, null});
+        TenantContext.setDomain(Fixtures.tenant(0), true);
+        TenantContext.setSchemaIsolation(true);
+    }
+
+    private static MappedStatement statement(Configuration configuration, String id, SqlCommandType type) {
+        return new MappedStatement.Builder(configuration, id, new StaticSqlSource(configuration, id), type).build();
+    }
+
+    private static <T> T stub(Class<T> type) {
+        return type.cast(Proxy.newProxyInstance(InterceptorBenchmark.class.getClassLoader(), new Class<?>[] {type},
+            (proxy, method, args) -> method.getReturnType() == int.class ? 0 : null));
+    }
+
+    /**
+     * 读写分离拦截查询语句
+     *
+     * @return 执行结果
+     * @throws Throwable 异常
+     */
+    @Benchmark
+    public Object readWriteSelect() throws Throwable {
+        return readWriteInterceptor.intercept(query);
+    }
+
+    /**
+     * 读写分离拦截写语句
+     *
+     * @return 执行结果
+     * @throws Throwable 异常
+     */
+    @Benchmark
+    public Object readWriteUpdate() throws Throwable {
+        return readWriteInterceptor.intercept(update);
+    }
+
+    /**
+     * 语句级schema切换
+     *
+     * @return 执行结果
+     * @throws Exception 异常
+     */
+    @Benchmark
+    public Object schemaPrepare() throws Exception {
+        return schemaInterceptor.intercept(prepare);
+    }
+}
@@ -22,8 +22,15 @@ import com.huawei.saas.config.binding.DataSourceBindingStrategy;
 import com.huawei.saas.config.binding.DefaultDataSourceBindingStrategy;
 import com.huawei.saas.config.binding.DefaultSchemaBindingStrategy;
 import com.huawei.saas.config.binding.SchemaBindingStrategy;
+import com.huawei.saas.config.context.HystrixTenantContextConfiguration;
+import com.huawei.saas.config.context.TenantContextTaskDecorator;
 import com.huawei.saas.config.dynamicdatasource.DataSourceRegistry;
 import com.huawei.saas.config.dynamicdatasource.DynamicRoutingDataSource;
+import com.huawei.saas.config.dynamicdatasource.LocalTenantWriteTracker;
+import com.huawei.saas.config.dynamicdatasource.TenantWriteTracker;
+import com.huawei.saas.config.metrics.RoutingMetricsConfiguration;
+import com.huawei.saas.config.trace.RoutingTraceEndpointConfiguration;
+import com.huawei.saas.config.trace.RoutingTraceRecorder;
 import com.huawei.saas.dbpool.creator.DataSourceCreator;
 import com.huawei.saas.dbpool.creator.DruidDataSourceCreator;
 import com.huawei.saas.dbpool.creator.HikariDataSourceCreator;
@@ -43,6 +50,7 @@ import org.springframework.boot.context.properties.EnableConfigurationProperties
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
+import org.springframework.core.task.TaskDecorator;
 import org.springframework.web.servlet.HandlerInterceptor;
 
 import java.util.List;
@@ -59,15 +67,18 @@ import javax.sql.DataSource;
 @Log4j2
 @AutoConfigureBefore(value = DataSourceAutoConfiguration.class,
     name = "com.alibaba.druid.spring.boot.autoconfigure.DruidDataSourceAutoConfigure")
-@Import(value = {DruidDynamicDataSourceConfiguration.class})
+@Import(value = {DruidDynamicDataSourceConfiguration.class, HystrixTenantContextConfiguration.class,
+    RoutingMetricsConfiguration.class, RoutingTraceEndpointConfiguration.class})
 @ConditionalOnProperty(prefix = "spring.datasource.dynamic", name = "enable", havingValue = "true")
 public class TenantAutoConfiguration {
     /**
-     * mybatis schema选择拦截器
+     * mybatis schema选择拦截器，获取连接时已切换schema，按需开启
      *
      * @return mybatis拦截器
      */
     @Bean
+    @ConditionalOnProperty(prefix = "spring.datasource.dynamic", name = "statement-schema-binding",
+        havingValue = "true")
     public MybatisSchemaInterceptor mybatisInterceptor() {
         return new MybatisSchemaInterceptor();
     }
@@ -170,6 +181,41 @@ public class TenantAutoConfiguration {
         return new DefaultDataSourceBindingStrategy();
     }
 
+    /**
+     * 异步任务传递租户路由信息，用于@Async等spring线程池
+     *
+     * @return 任务装饰器
+     */
+    @Bean
+    @ConditionalOnMissingBean(TaskDecorator.class)
+    public TaskDecorator tenantContextTaskDecorator() {
+        return new TenantContextTaskDecorator();
+    }
+
+    /**
+     * 租户最近写入记录，用于写后读主库的粘滞窗口，默认仅本节点可见，多节点部署时可自定义实现共享写入时间
+     *
+     * @param property 动态数据源配置
+     * @return 写入记录
+     */
+    @Bean
+    @ConditionalOnMissingBean(TenantWriteTracker.class)
+    public TenantWriteTracker tenantWriteTracker(DynamicSourceProperties property) {
+        return new LocalTenantWriteTracker(property.getStickyMasterSlots());
+    }
+
+    /**
+     * 路由决策记录，按采样率记录到固定大小的环形缓冲区
+     *
+     * @param property 动态数据源配置
+     * @return 路由决策记录
+     */
+    @Bean
+    @ConditionalOnMissingBean(RoutingTraceRecorder.class)
+    public RoutingTraceRecorder routingTraceRecorder(DynamicSourceProperties property) {
+        return new RoutingTraceRecorder(property.getRoutingTraceSize(), property::getRoutingTraceSampleRate);
+    }
+
     /**
      * 设置租户标识
      *
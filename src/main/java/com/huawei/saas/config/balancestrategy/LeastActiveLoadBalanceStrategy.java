@@ -0,0 +1,66 @@
+/*
+ * Copyright 2022. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.huawei.saas.config.balancestrategy;
+
+import com.huawei.saas.config.dynamicdatasource.SnapshotDataSource;
+import com.huawei.saas.constants.LoadBalanceStrategyEnum;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 最小负载算法，随机选取两个数据源，取负载较低者（power of two choices）
+ * 负载取自连接池的使用中连接数与等待线程数，连接池不可观测时取正在获取连接的请求数
+ *
+ * @since 2022-4-22
+ */
+public class LeastActiveLoadBalanceStrategy implements LoadBalanceStrategy {
+
+    @Override
+    public String getStrategyType() {
+        return LoadBalanceStrategyEnum.LEAST_ACTIVE.getCode();
+    }
+
+    @Override
+    public SnapshotDataSource get(List<SnapshotDataSource> dataSourceList) {
+        int size = dataSourceList.size();
+        if (size == 1) {
+            return dataSourceList.get(0);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(size);
+        int second = random.nextInt(size - 1);
+        return lessLoaded(dataSourceList.get(first), dataSourceList.get(second >= first ? second + 1 : second));
+    }
+
+    @Override
+    public SnapshotDataSource get(SnapshotDataSource[] dataSources) {
+        int size = dataSources.length;
+        if (size == 1) {
+            return dataSources[0];
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(size);
+        int second = random.nextInt(size - 1);
+        return lessLoaded(dataSources[first], dataSources[second >= first ? second + 1 : second]);
+    }
+
+    private static SnapshotDataSource lessLoaded(SnapshotDataSource first, SnapshotDataSource second) {
+        // 负载相同时取第一个，两者本身为随机选取
+        return second.getLoad() < first.getLoad() ? second : first;
+    }
+}
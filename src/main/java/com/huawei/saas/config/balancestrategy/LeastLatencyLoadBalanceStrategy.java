@@ -0,0 +1,71 @@
+/*
+ * Copyright 2022. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.huawei.saas.config.balancestrategy;
+
+import com.huawei.saas.config.dynamicdatasource.DataSourceStatistics;
+import com.huawei.saas.config.dynamicdatasource.SnapshotDataSource;
+import com.huawei.saas.constants.LoadBalanceStrategyEnum;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 延迟感知算法，随机选取两个数据源，取代价较低者
+ * 代价 = (获取连接耗时均值 + 语句执行耗时均值) * (当前负载 + 1)，均值随时间衰减，变慢的数据源一段时间后会被重新探测
+ *
+ * @since 2022-4-22
+ */
+public class LeastLatencyLoadBalanceStrategy implements LoadBalanceStrategy {
+
+    @Override
+    public String getStrategyType() {
+        return LoadBalanceStrategyEnum.LEAST_LATENCY.getCode();
+    }
+
+    @Override
+    public SnapshotDataSource get(List<SnapshotDataSource> dataSourceList) {
+        int size = dataSourceList.size();
+        if (size == 1) {
+            return dataSourceList.get(0);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(size);
+        int second = random.nextInt(size - 1);
+        return cheaper(dataSourceList.get(first), dataSourceList.get(second >= first ? second + 1 : second));
+    }
+
+    @Override
+    public SnapshotDataSource get(SnapshotDataSource[] dataSources) {
+        int size = dataSources.length;
+        if (size == 1) {
+            return dataSources[0];
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(size);
+        int second = random.nextInt(size - 1);
+        return cheaper(dataSources[first], dataSources[second >= first ? second + 1 : second]);
+    }
+
+    private static SnapshotDataSource cheaper(SnapshotDataSource first, SnapshotDataSource second) {
+        return cost(second) < cost(first) ? second : first;
+    }
+
+    private static double cost(SnapshotDataSource dataSource) {
+        DataSourceStatistics statistics = dataSource.getStatistics();
+        return (statistics.getAcquireLatency() + statistics.getQueryLatency()) * (dataSource.getLoad() + 1);
+    }
+}
@@ -18,6 +18,7 @@ package com.huawei.saas.config.balancestrategy;
 
 import com.huawei.saas.config.dynamicdatasource.SnapshotDataSource;
 
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -40,4 +41,15 @@ public interface LoadBalanceStrategy {
      * @return 数据源
      */
     SnapshotDataSource get(List<SnapshotDataSource> dataSourceList);
+
+    /**
+     * 从预先过滤的可用成员中获取数据源，数组由数据源组持有，只读不可修改
+     * 默认转换为列表调用 {@link #get(List)}，实现类可覆盖以避免每次选库的对象分配
+     *
+     * @param dataSources 可用数据源
+     * @return 数据源
+     */
+    default SnapshotDataSource get(SnapshotDataSource[] dataSources) {
+        return get(Arrays.asList(dataSources));
+    }
 }
@@ -41,4 +41,12 @@ public class RandomLoadBalanceStrategy implements LoadBalanceStrategy {
         }
         return dataSourceList.get(ThreadLocalRandom.current().nextInt(dataSourceList.size()));
     }
+
+    @Override
+    public SnapshotDataSource get(SnapshotDataSource[] dataSources) {
+        if (dataSources.length == 1) {
+            return dataSources[0];
+        }
+        return dataSources[ThreadLocalRandom.current().nextInt(dataSources.length)];
+    }
 }
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2022. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.huawei.saas.config.balancestrategy;
+
+import com.huawei.saas.config.dynamicdatasource.SnapshotDataSource;
+import com.huawei.saas.constants.LoadBalanceStrategyEnum;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 平滑加权轮询算法
+ * 成员变化时按nginx平滑加权轮询预先生成选取序列，选库时各线程按分段计数器读取序列，无锁
+ *
+ * @since 2022-4-22
+ */
+public class WeightedRoundRobinLoadBalanceStrategy implements LoadBalanceStrategy {
+    // 同时缓存的序列数，主从各一组，另留出刷新期间旧快照的余量
+    private static final int MAX_SCHEDULES = 8;
+
+    // 序列最大长度，权重总和超出时按比例缩小
+    private static final int MAX_SEQUENCE_LENGTH = 4096;
+
+    // 计数器间隔，避免不同分段落在同一缓存行
+    private static final int PADDING = 16;
+
+    private static final int STRIPES = stripes();
+
+    /**
+     * 选取序列，key为数据源组持有的成员数组，按引用比较
+     */
+    private final Map<SnapshotDataSource[], Schedule> schedules = new ConcurrentHashMap<>(MAX_SCHEDULES);
+
+    @Override
+    public String getStrategyType() {
+        return LoadBalanceStrategyEnum.WEIGHTED_ROUND_ROBIN.getCode();
+    }
+
+    @Override
+    public SnapshotDataSource get(List<SnapshotDataSource> dataSourceList) {
+        if (dataSourceList.size() == 1) {
+            return dataSourceList.get(0);
+        }
+
+        // 列表每次调用可能不同，不缓存序列，按权重随机选取
+        int[] weights = weights(dataSourceList.toArray(new SnapshotDataSource[0]));
+        int total = 0;
+        for (int weight : weights) {
+            total += weight;
+        }
+        int point = ThreadLocalRandom.current().nextInt(total);
+        for (int index = 0; index < weights.length; index++) {
+            point -= weights[index];
+            if (point < 0) {
+                return dataSourceList.get(index);
+            }
+        }
+        return dataSourceList.get(dataSourceList.size() - 1);
+    }
+
+    @Override
+    public SnapshotDataSource get(SnapshotDataSource[] dataSources) {
+        if (dataSources.length == 1) {
+            return dataSources[0];
+        }
+        Schedule schedule = schedules.get(dataSources);
+        if (schedule == null) {
+            if (schedules.size() >= MAX_SCHEDULES) {
+                schedules.clear();
+            }
+            schedule = schedules.computeIfAbsent(dataSources, Schedule::new);
+        }
+        return dataSources[schedule.next()];
+    }
+
+    private static int[] weights(SnapshotDataSource[] dataSources) {
+        int[] weights = new int[dataSources.length];
+        boolean anyPositive = false;
+        for (int index = 0; index < dataSources.length; index++) {
+            int weight = dataSources[index].getProperty() != null ? dataSources[index].getProperty().getWeight() : 1;
+            weights[index] = Math.max(weight, 0);
+            anyPositive |= weight > 0;
+        }
+        if (!anyPositive) {
+            // 全部未设置有效权重时等权
+            Arrays.fill(weights, 1);
+        }
+        return weights;
+    }
+
+    private static int stripes() {
+        int processors = Math.min(Runtime.getRuntime().availableProcessors(), 64);
+        return Integer.highestOneBit(Math.max(processors, 1) * 2 - 1);
+    }
+
+    /**
+     * 成员数组对应的选取序列
+     */
+    private static final class Schedule {
+        private final int[] sequence;
+
+        private final int[] offsets;
+
+        private final AtomicLongArray counters;
+
+        private Schedule(SnapshotDataSource[] dataSources) {
+            this.sequence = buildSequence(normalize(weights(dataSources)));
+            this.offsets = new int[STRIPES];
+            for (int stripe = 0; stripe < STRIPES; stripe++) {
+                offsets[stripe] = (int) ((long) stripe * sequence.length / STRIPES);
+            }
+            this.counters = new AtomicLongArray(STRIPES * PADDING);
+        }
+
+        private int next() {
+            int stripe = (int) Thread.currentThread().getId() & (STRIPES - 1);
+            long count = counters.getAndIncrement(stripe * PADDING);
+            return sequence[(int) ((count + offsets[stripe]) % sequence.length)];
+        }
+
+        private static int[] normalize(int[] weights) {
+            int gcd = 0;
+            long total = 0;
+            for (int weight : weights) {
+                if (weight > 0) {
+                    gcd = gcd == 0 ? weight : BigInteger.valueOf(gcd).gcd(BigInteger.valueOf(weight)).intValue();
+                    total += weight;
+                }
+            }
+            long reducedTotal = total / gcd;
+            double scale = reducedTotal > MAX_SEQUENCE_LENGTH ? (double) MAX_SEQUENCE_LENGTH / reducedTotal : 1.0D;
+            int[] normalized = new int[weights.length];
+            for (int index = 0; index < weights.length; index++) {
+                if (weights[index] > 0) {
+                    normalized[index] = Math.max(1, (int) Math.round(weights[index] / gcd * scale));
+                }
+            }
+            return normalized;
+        }
+
+        private static int[] buildSequence(int[] weights) {
+            int total = 0;
+            for (int weight : weights) {
+                total += weight;
+            }
+            int[] current = new int[weights.length];
+            int[] result = new int[total];
+            for (int position = 0; position < total; position++) {
+                int selected = 0;
+                for (int index = 0; index < weights.length; index++) {
+                    current[index] += weights[index];
+                    if (current[index] > current[selected]) {
+                        selected = index;
+                    }
+                }
+                current[selected] -= total;
+                result[position] = selected;
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2022. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.huawei.saas.config.binding;
+
+import com.huawei.saas.dbpool.PoolStatistics;
+
+import org.apache.commons.lang.StringUtils;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * 通过setCatalog切换，适用于mysql/mariadb，也是未匹配到其他实现时的默认方式
+ *
+ * @since 2022-4-22
+ */
+public class CatalogSchemaSwitcher implements SchemaSwitcher {
+    @Override
+    public boolean supports(String url) {
+        return StringUtils.startsWithIgnoreCase(url, "jdbc:mysql:")
+            || StringUtils.startsWithIgnoreCase(url, "jdbc:mariadb:");
+    }
+
+    @Override
+    public void switchSchema(Connection connection, String schema) throws SQLException {
+        connection.setCatalog(schema);
+    }
+
+    @Override
+    public String getSchema(Connection connection) throws SQLException {
+        return connection.getCatalog();
+    }
+
+    @Override
+    public String getResetSchema(PoolStatistics pool) {
+        return pool.getResetCatalog();
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2022. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.huawei.saas.config.binding;
+
+import com.huawei.saas.exception.RoutingException;
+
+import org.apache.commons.lang.StringUtils;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * oracle通过ALTER SESSION SET CURRENT_SCHEMA切换，兼容不支持setSchema的旧驱动
+ *
+ * @since 2022-4-22
+ */
+public class OracleSchemaSwitcher implements SchemaSwitcher {
+    // 非引号标识符，schema拼接到语句中，需校验
+    private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z][A-Za-z0-9_$#]{0,127}");
+
+    @Override
+    public boolean supports(String url) {
+        return StringUtils.startsWithIgnoreCase(url, "jdbc:oracle:");
+    }
+
+    @Override
+    public void switchSchema(Connection connection, String schema) throws SQLException {
+        if (schema == null || !IDENTIFIER.matcher(schema).matches()) {
+            throw new RoutingException(String.format(Locale.ENGLISH, "Invalid oracle schema name %s", schema));
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("ALTER SESSION SET CURRENT_SCHEMA = " + schema);
+        }
+    }
+
+    @Override
+    public String normalizeSchema(String schema) {
+        // 非引号标识符不区分大小写，CURRENT_SCHEMA返回大写
+        return schema != null ? schema.toUpperCase(Locale.ENGLISH) : null;
+    }
+
+    @Override
+    public String getSchema(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+            ResultSet resultSet = statement.executeQuery(
+                "SELECT SYS_CONTEXT('USERENV', 'CURRENT_SCHEMA') FROM DUAL")) {
+            return resultSet.next() ? resultSet.getString(1) : null;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2022. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.huawei.saas.config.binding;
+
+import java.sql.SQLException;
+
+/**
+ * 记录了当前schema的连接，schema未变化时跳过切换，通过Connection.unwrap获取
+ *
+ * @since 2022-4-22
+ */
+public interface SchemaSession {
+    /**
+     * 切换到目标schema，与当前schema相同时不执行
+     *
+     * @param schema 目标schema
+     * @throws SQLException 切换异常
+     */
+    void switchSchema(String schema) throws SQLException;
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2022. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.huawei.saas.config.binding;
+
+import com.huawei.saas.dbpool.PoolStatistics;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * schema切换，按数据库类型扩展，需在META-INF/spring.factories中注册
+ * 数据源组按主库连接地址选取实现，未匹配时使用setCatalog
+ *
+ * @since 2022-4-22
+ */
+public interface SchemaSwitcher {
+    /**
+     * 是否支持该数据库
+     *
+     * @param url 连接地址
+     * @return 判断结果
+     */
+    boolean supports(String url);
+
+    /**
+     * 切换当前会话的schema
+     *
+     * @param connection 连接
+     * @param schema 目标schema
+     * @throws SQLException 切换异常
+     */
+    void switchSchema(Connection connection, String schema) throws SQLException;
+
+    /**
+     * 查询当前会话的schema，每个物理连接仅在首次记录时查询
+     *
+     * @param connection 连接
+     * @return 当前schema
+     * @throws SQLException 查询异常
+     */
+    String getSchema(Connection connection) throws SQLException;
+
+    /**
+     * 按数据库的标识符规则转换为查询当前schema时返回的形式，用于判断是否需要切换
+     *
+     * @param schema schema
+     * @return 转换后的schema
+     */
+    default String normalizeSchema(String schema) {
+        return schema;
+    }
+
+    /**
+     * 连接归还时连接池恢复的schema
+     *
+     * @param pool 连接池状态
+     * @return schema，连接池不恢复时为空
+     */
+    default String getResetSchema(PoolStatistics pool) {
+        return null;
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) Huawei Technologies Co., Ltd. 2022-2022. All rights reserved.
+ */
+
+package com.huawei.saas.config.context;
+
+import com.netflix.hystrix.Hystrix;
+import com.netflix.hystrix.strategy.HystrixPlugins;
+import com.netflix.hystrix.strategy.concurrency.HystrixConcurrencyStrategy;
+import com.netflix.hystrix.strategy.eventnotifier.HystrixEventNotifier;
+import com.netflix.hystrix.strategy.executionhook.HystrixCommandExecutionHook;
+import com.netflix.hystrix.strategy.metrics.HystrixMetricsPublisher;
+import com.netflix.hystrix.strategy.properties.HystrixPropertiesStrategy;
+
+import lombok.extern.log4j.Log4j2;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 可选的hystrix集成，classpath中存在hystrix时生效，使租户标识可以传递到hystrix线程
+ *
+ * @since 2022-02-14
+ */
+@Configuration
+@ConditionalOnClass(Hystrix.class)
+@Log4j2
+public class HystrixTenantContextConfiguration {
+    /**
+     * 注册租户路由信息传递策略，保留已注册的其他hystrix插件
+     *
+     * @return 并发策略
+     */
+    @Bean
+    public HystrixTenantContextConcurrencyStrategy hystrixTenantContextConcurrencyStrategy() {
+        HystrixPlugins plugins = HystrixPlugins.getInstance();
+        HystrixConcurrencyStrategy concurrencyStrategy = plugins.getConcurrencyStrategy();
+        if (concurrencyStrategy instanceof HystrixTenantContextConcurrencyStrategy) {
+            return (HystrixTenantContextConcurrencyStrategy) concurrencyStrategy;
+        }
+        HystrixCommandExecutionHook executionHook = plugins.getCommandExecutionHook();
+        HystrixEventNotifier eventNotifier = plugins.getEventNotifier();
+        HystrixMetricsPublisher metricsPublisher = plugins.getMetricsPublisher();
+        HystrixPropertiesStrategy propertiesStrategy = plugins.getPropertiesStrategy();
+        HystrixTenantContextConcurrencyStrategy strategy = new HystrixTenantContextConcurrencyStrategy(
+            concurrencyStrategy);
+        HystrixPlugins.reset();
+        plugins = HystrixPlugins.getInstance();
+        plugins.registerConcurrencyStrategy(strategy);
+        plugins.registerCommandExecutionHook(executionHook);
+        plugins.registerEventNotifier(eventNotifier);
+        plugins.registerMetricsPublisher(metricsPublisher);
+        plugins.registerPropertiesStrategy(propertiesStrategy);
+        log.info("Tenant context propagation registered for hystrix");
+        return strategy;
+    }
+}
@@ -4,27 +4,23 @@
 
 package com.huawei.saas.config.context;
 
+import com.huawei.saas.config.binding.SchemaSwitcher;
+import com.huawei.saas.config.dynamicdatasource.SnapshotDataSource;
 import com.huawei.saas.constants.Constants;
 
-import com.netflix.hystrix.strategy.concurrency.HystrixRequestContext;
-import com.netflix.hystrix.strategy.concurrency.HystrixRequestVariableDefault;
-
 import lombok.Data;
 
-import org.springframework.util.CollectionUtils;
-
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Optional;
+import java.util.concurrent.Callable;
 
 /**
  * 保存当前租户标识
+ * 每个线程持有一个可复用的路由信息对象，首次写入时创建，会话结束时重置而不重新创建
+ * 跨线程传递时使用 {@link #capture()} 获取快照，在目标线程中执行
  *
  * @since 2022-02-14
  */
 public class TenantContext {
-    private static final HystrixRequestVariableDefault<Map<String, Object>> GLOBAL_CACHE
-        = new HystrixRequestVariableDefault<>();
+    private static final ThreadLocal<RoutingBasis> HOLDER = new ThreadLocal<>();
 
     /**
      * 获取租户标识
@@ -32,7 +28,8 @@ public class TenantContext {
      * @return 标识
      */
     public static String getDomain() {
-        return Optional.ofNullable(getRoutingBasis()).orElse(new RoutingBasis()).getTenantDomain();
+        RoutingBasis basis = HOLDER.get();
+        return basis == null ? null : basis.getTenantDomain();
     }
 
     /**
@@ -42,8 +39,7 @@ public class TenantContext {
      * @param force 是否强制执行
      */
     public static void setDomain(String domain, boolean force) {
-        init(force);
-        ((RoutingBasis) GLOBAL_CACHE.get().get(Constants.TENANT_DOMAIN)).setTenantDomain(domain);
+        initialize(force).setTenantDomain(domain);
     }
 
     /**
@@ -52,11 +48,11 @@ public class TenantContext {
      * @param sqlCommandType 操作类型
      */
     public static void setDbStrategyType(String sqlCommandType) {
-        init(false);
+        RoutingBasis basis = initialize(false);
         if (Constants.DB_SLAVE.equalsIgnoreCase(sqlCommandType)) {
             return;
         }
-        ((RoutingBasis) GLOBAL_CACHE.get().get(Constants.TENANT_DOMAIN)).setMasterSlaveStrategy(sqlCommandType);
+        basis.setMasterSlaveStrategy(sqlCommandType);
     }
 
     /**
@@ -65,23 +61,18 @@ public class TenantContext {
      * @return 策略
      */
     public static String getDbStrategyType() {
-        return Optional.ofNullable(getRoutingBasis()).orElse(new RoutingBasis()).getMasterSlaveStrategy();
+        RoutingBasis basis = HOLDER.get();
+        return basis == null ? null : basis.getMasterSlaveStrategy();
     }
 
     /**
      * 获取路由信息
      *
-     * @return 路由信息
+     * @return 路由信息，未初始化时为空
      */
     public static RoutingBasis getRoutingBasis() {
-        if (!HystrixRequestContext.isCurrentThreadInitialized()) {
-            return null;
-        }
-        Object obj = Optional.ofNullable(GLOBAL_CACHE.get()).orElse(new HashMap<>()).get(Constants.TENANT_DOMAIN);
-        if (obj == null) {
-            return null;
-        }
-        return (RoutingBasis) obj;
+        RoutingBasis basis = HOLDER.get();
+        return basis != null && basis.isInitialized() ? basis : null;
     }
 
     /**
@@ -90,8 +81,7 @@ public class TenantContext {
      * @param enable enable
      */
     public static void setSchemaIsolation(boolean enable) {
-        init(false);
-        ((RoutingBasis) GLOBAL_CACHE.get().get(Constants.TENANT_DOMAIN)).setSchemaIsolationEnable(enable);
+        initialize(false).setSchemaIsolationEnable(enable);
     }
 
     /**
@@ -100,14 +90,142 @@ public class TenantContext {
      * @return 是否开启schema隔离
      */
     public static boolean isSchemaIsolation() {
-        return Optional.ofNullable(getRoutingBasis()).orElse(new RoutingBasis()).isSchemaIsolationEnable();
+        RoutingBasis basis = HOLDER.get();
+        return basis != null && basis.isSchemaIsolationEnable();
+    }
+
+    /**
+     * 记录当前数据源组的schema切换方式，不随快照传递
+     *
+     * @param schemaSwitcher schema切换方式
+     */
+    public static void setSchemaSwitcher(SchemaSwitcher schemaSwitcher) {
+        initialize(false).setSchemaSwitcher(schemaSwitcher);
+    }
+
+    /**
+     * 获取当前数据源组的schema切换方式
+     *
+     * @return schema切换方式，未路由时为空
+     */
+    public static SchemaSwitcher getSchemaSwitcher() {
+        RoutingBasis basis = HOLDER.get();
+        return basis == null ? null : basis.getSchemaSwitcher();
+    }
+
+    /**
+     * 记录本线程最近一次获取连接所使用的数据源，用于统计语句耗时，不随快照传递
+     *
+     * @param dataSource 数据源
+     */
+    public static void setRoutedDataSource(SnapshotDataSource dataSource) {
+        initialize(false).setRoutedDataSource(dataSource);
     }
 
     /**
-     * 移除
+     * 获取本线程最近一次获取连接所使用的数据源
+     *
+     * @return 数据源
+     */
+    public static SnapshotDataSource getRoutedDataSource() {
+        RoutingBasis basis = HOLDER.get();
+        return basis == null ? null : basis.getRoutedDataSource();
+    }
+
+    /**
+     * 移除，重置当前线程的路由信息
      */
     public static void remove() {
-        GLOBAL_CACHE.remove();
+        RoutingBasis basis = HOLDER.get();
+        if (basis != null) {
+            basis.reset();
+        }
+    }
+
+    /**
+     * 获取当前线程路由信息的不可变快照，用于传递到其他线程
+     *
+     * @return 快照，未初始化时为 {@link TenantContextSnapshot#EMPTY}
+     */
+    public static TenantContextSnapshot capture() {
+        RoutingBasis basis = getRoutingBasis();
+        if (basis == null) {
+            return TenantContextSnapshot.EMPTY;
+        }
+        return new TenantContextSnapshot(basis.getTenantDomain(), basis.getMasterSlaveStrategy(),
+            basis.isSchemaIsolationEnable());
+    }
+
+    /**
+     * 使用快照覆盖当前线程的路由信息
+     *
+     * @param snapshot 快照
+     */
+    public static void restore(TenantContextSnapshot snapshot) {
+        if (snapshot == null || snapshot.isEmpty()) {
+            remove();
+            return;
+        }
+        RoutingBasis basis = initialize(true);
+        basis.setTenantDomain(snapshot.getTenantDomain());
+        basis.setMasterSlaveStrategy(snapshot.getMasterSlaveStrategy());
+        basis.setSchemaIsolationEnable(snapshot.isSchemaIsolationEnable());
+    }
+
+    /**
+     * 以快照的路由信息替换当前线程的路由信息，原有路由信息（包括不随快照传递的数据源与schema切换方式）保持不变，
+     * 执行结束后通过 {@link #detach(RoutingBasis)} 原样恢复；调用方线程直接执行任务时不会丢失自身的路由信息
+     *
+     * @param snapshot 快照
+     * @return 被替换的路由信息，可能为空
+     */
+    static RoutingBasis attach(TenantContextSnapshot snapshot) {
+        RoutingBasis previous = HOLDER.get();
+        RoutingBasis basis = new RoutingBasis();
+        if (snapshot != null && !snapshot.isEmpty()) {
+            basis.setInitialized(true);
+            basis.setTenantDomain(snapshot.getTenantDomain());
+            basis.setMasterSlaveStrategy(snapshot.getMasterSlaveStrategy());
+            basis.setSchemaIsolationEnable(snapshot.isSchemaIsolationEnable());
+        }
+        HOLDER.set(basis);
+        return previous;
+    }
+
+    /**
+     * 恢复 {@link #attach(TenantContextSnapshot)} 之前的路由信息
+     *
+     * @param previous 被替换的路由信息
+     */
+    static void detach(RoutingBasis previous) {
+        if (previous == null) {
+            HOLDER.remove();
+        } else {
+            HOLDER.set(previous);
+        }
+    }
+
+    /**
+     * 以指定租户执行任务，执行结束后恢复当前线程原有的路由信息
+     *
+     * @param tenant 租户标识
+     * @param callable 任务
+     * @param <T> 返回类型
+     * @return 任务结果
+     * @throws Exception 任务异常
+     */
+    public static <T> T callWith(String tenant, Callable<T> callable) throws Exception {
+        return new TenantContextSnapshot(tenant, null, false).call(callable);
+    }
+
+    /**
+     * 以指定租户执行任务，执行结束后恢复当前线程原有的路由信息
+     *
+     * @param tenant 租户标识
+     * @param runnable 任务
+     */
+    public static void runWith(String tenant, Runnable runnable) {
+        new TenantContextSnapshot(tenant, null, false).run(runnable);
     }
 
     /**
@@ -116,19 +234,19 @@ public class TenantContext {
      * @param forceInit 是否强制重置
      */
     public static void init(boolean forceInit) {
-        if (HystrixRequestContext.isCurrentThreadInitialized()) {
-            if (forceInit) {
-                HystrixRequestContext.initializeContext();
-            }
-        } else {
-            HystrixRequestContext.initializeContext();
-        }
-        if (CollectionUtils.isEmpty(GLOBAL_CACHE.get())) {
-            GLOBAL_CACHE.set(new HashMap<>());
-        }
-        if (GLOBAL_CACHE.get().get(Constants.TENANT_DOMAIN) == null) {
-            GLOBAL_CACHE.get().put(Constants.TENANT_DOMAIN, new RoutingBasis());
+        initialize(forceInit);
+    }
+
+    private static RoutingBasis initialize(boolean forceInit) {
+        RoutingBasis basis = HOLDER.get();
+        if (basis == null) {
+            basis = new RoutingBasis();
+            HOLDER.set(basis);
+        } else if (forceInit) {
+            basis.reset();
         }
+        basis.setInitialized(true);
+        return basis;
     }
 
     /**
@@ -136,6 +254,10 @@ public class TenantContext {
      */
     @Data
     static class RoutingBasis {
+        /**
+         * 是否已初始化
+         */
+        private boolean initialized = false;
 
         /**
          * 租户标识
@@ -151,5 +273,27 @@ public class TenantContext {
          * 开启schema隔离标识
          */
         private boolean schemaIsolationEnable = false;
+
+        /**
+         * 最近一次获取连接所使用的数据源
+         */
+        private SnapshotDataSource routedDataSource;
+
+        /**
+         * 当前数据源组的schema切换方式
+         */
+        private SchemaSwitcher schemaSwitcher;
+
+        /**
+         * 重置为未初始化状态
+         */
+        void reset() {
+            initialized = false;
+            tenantDomain = null;
+            masterSlaveStrategy = null;
+            schemaIsolationEnable = false;
+            routedDataSource = null;
+            schemaSwitcher = null;
+        }
     }
 }
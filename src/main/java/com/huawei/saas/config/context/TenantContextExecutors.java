@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) Huawei Technologies Co., Ltd. 2022-2022. All rights reserved.
+ */
+
+package com.huawei.saas.config.context;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * 线程池包装工具，使提交的任务沿用提交线程的租户路由信息
+ * 例如 CompletableFuture.supplyAsync(supplier, TenantContextExecutors.wrap(executor))
+ *
+ * @since 2022-02-14
+ */
+public final class TenantContextExecutors {
+    private TenantContextExecutors() {
+    }
+
+    /**
+     * 包装执行器
+     *
+     * @param executor 执行器
+     * @return 传递租户路由信息的执行器
+     */
+    public static Executor wrap(Executor executor) {
+        if (executor instanceof ScheduledExecutorService) {
+            return wrap((ScheduledExecutorService) executor);
+        }
+        if (executor instanceof ExecutorService) {
+            return wrap((ExecutorService) executor);
+        }
+        return command -> executor.execute(TenantContext.capture().wrap(command));
+    }
+
+    /**
+     * 包装线程池
+     *
+     * @param executorService 线程池
+     * @return 传递租户路由信息的线程池
+     */
+    public static ExecutorService wrap(ExecutorService executorService) {
+        if (executorService instanceof ScheduledExecutorService) {
+            return wrap((ScheduledExecutorService) executorService);
+        }
+        if (executorService instanceof TenantContextExecutorService) {
+            return executorService;
+        }
+        return new TenantContextExecutorService(executorService);
+    }
+
+    /**
+     * 包装调度线程池
+     *
+     * @param executorService 调度线程池
+     * @return 传递租户路由信息的调度线程池
+     */
+    public static ScheduledExecutorService wrap(ScheduledExecutorService executorService) {
+        if (executorService instanceof TenantContextScheduledExecutorService) {
+            return executorService;
+        }
+        return new TenantContextScheduledExecutorService(executorService);
+    }
+}
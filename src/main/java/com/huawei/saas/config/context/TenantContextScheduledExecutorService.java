@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) Huawei Technologies Co., Ltd. 2022-2022. All rights reserved.
+ */
+
+package com.huawei.saas.config.context;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 调度任务时捕获调用线程的租户路由信息，每次执行时在执行线程中恢复
+ *
+ * @since 2022-02-14
+ */
+public class TenantContextScheduledExecutorService extends TenantContextExecutorService
+    implements ScheduledExecutorService {
+    private final ScheduledExecutorService delegate;
+
+    /**
+     * 构造器
+     *
+     * @param delegate 被包装的调度线程池
+     */
+    public TenantContextScheduledExecutorService(ScheduledExecutorService delegate) {
+        super(delegate);
+        this.delegate = delegate;
+    }
+
+    @Override
+    public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+        return delegate.schedule(TenantContext.capture().wrap(command), delay, unit);
+    }
+
+    @Override
+    public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
+        return delegate.schedule(TenantContext.capture().wrap(callable), delay, unit);
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, long initialDelay, long period, TimeUnit unit) {
+        return delegate.scheduleAtFixedRate(TenantContext.capture().wrap(command), initialDelay, period, unit);
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay, long delay,
+        TimeUnit unit) {
+        return delegate.scheduleWithFixedDelay(TenantContext.capture().wrap(command), initialDelay, delay, unit);
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) Huawei Technologies Co., Ltd. 2022-2022. All rights reserved.
+ */
+
+package com.huawei.saas.config.context;
+
+import lombok.Getter;
+
+import java.util.concurrent.Callable;
+
+/**
+ * 租户路由信息快照，不可变，可在多个线程及多个任务间共享
+ * 在目标线程执行时覆盖该线程的路由信息，结束后恢复其原有状态
+ *
+ * @since 2022-02-14
+ */
+@Getter
+public final class TenantContextSnapshot {
+    /**
+     * 空快照，执行时清空目标线程的路由信息
+     */
+    public static final TenantContextSnapshot EMPTY = new TenantContextSnapshot(null, null, false);
+
+    private final String tenantDomain;
+
+    private final String masterSlaveStrategy;
+
+    private final boolean schemaIsolationEnable;
+
+    TenantContextSnapshot(String tenantDomain, String masterSlaveStrategy, boolean schemaIsolationEnable) {
+        this.tenantDomain = tenantDomain;
+        this.masterSlaveStrategy = masterSlaveStrategy;
+        this.schemaIsolationEnable = schemaIsolationEnable;
+    }
+
+    /**
+     * 是否空快照
+     *
+     * @return 判断结果
+     */
+    public boolean isEmpty() {
+        return this == EMPTY;
+    }
+
+    /**
+     * 在当前线程以快照执行任务
+     *
+     * @param callable 任务
+     * @param <T> 返回类型
+     * @return 任务结果
+     * @throws Exception 任务异常
+     */
+    public <T> T call(Callable<T> callable) throws Exception {
+        TenantContext.RoutingBasis previous = TenantContext.attach(this);
+        try {
+            return callable.call();
+        } finally {
+            TenantContext.detach(previous);
+        }
+    }
+
+    /**
+     * 在当前线程以快照执行任务
+     *
+     * @param runnable 任务
+     */
+    public void run(Runnable runnable) {
+        TenantContext.RoutingBasis previous = TenantContext.attach(this);
+        try {
+            runnable.run();
+        } finally {
+            TenantContext.detach(previous);
+        }
+    }
+
+    /**
+     * 包装任务，执行时使用本快照
+     *
+     * @param runnable 任务
+     * @return 包装后的任务
+     */
+    public Runnable wrap(Runnable runnable) {
+        return () -> run(runnable);
+    }
+
+    /**
+     * 包装任务，执行时使用本快照
+     *
+     * @param callable 任务
+     * @param <T> 返回类型
+     * @return 包装后的任务
+     */
+    public <T> Callable<T> wrap(Callable<T> callable) {
+        return () -> call(callable);
+    }
+}
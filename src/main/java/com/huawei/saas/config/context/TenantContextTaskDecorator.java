@@ -0,0 +1,19 @@
+/*
+ * Copyright (c) Huawei Technologies Co., Ltd. 2022-2022. All rights reserved.
+ */
+
+package com.huawei.saas.config.context;
+
+import org.springframework.core.task.TaskDecorator;
+
+/**
+ * spring线程池任务装饰器，使@Async等异步任务沿用提交线程的租户路由信息
+ *
+ * @since 2022-02-14
+ */
+public class TenantContextTaskDecorator implements TaskDecorator {
+    @Override
+    public Runnable decorate(Runnable runnable) {
+        return TenantContext.capture().wrap(runnable);
+    }
+}
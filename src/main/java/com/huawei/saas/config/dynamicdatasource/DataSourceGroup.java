@@ -17,18 +17,28 @@
 package com.huawei.saas.config.dynamicdatasource;
 
 import com.huawei.saas.config.balancestrategy.LoadBalanceStrategy;
+import com.huawei.saas.config.binding.CatalogSchemaSwitcher;
+import com.huawei.saas.config.binding.SchemaSwitcher;
 import com.huawei.saas.config.context.TenantContext;
 import com.huawei.saas.constants.Constants;
+import com.huawei.saas.exception.RoutingException;
 
-import lombok.AllArgsConstructor;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
 import lombok.extern.log4j.Log4j2;
 
 import org.springframework.util.CollectionUtils;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 
 /**
  * 数据源组
@@ -36,9 +46,16 @@ import java.util.stream.Collectors;
  * @since 2022-4-22
  */
 @Data
-@AllArgsConstructor
 @Log4j2
 public class DataSourceGroup {
+    private static final SnapshotDataSource[] NO_MEMBERS = new SnapshotDataSource[0];
+
+    private static final long MATERIALIZE_RETRY_INTERVAL_MILLIS = 1000L;
+
+    private static final long TOUCH_RESOLUTION_MILLIS = 1000L;
+
+    private static final long NO_MEMBER_WARN_INTERVAL_MILLIS = 10000L;
+
     /**
      * 组名
      */
@@ -55,14 +72,297 @@ public class DataSourceGroup {
     private LoadBalanceStrategy loadBalanceStrategy;
 
     /**
-     * 主库
+     * 主库，写时复制，只整体替换不原地修改
+     */
+    private volatile List<SnapshotDataSource> masterGroup;
+
+    /**
+     * 从库，写时复制，只整体替换不原地修改
+     */
+    private volatile List<SnapshotDataSource> slaveGroup;
+
+    /**
+     * 写后读主库的粘滞窗口，毫秒，小于等于0时关闭
+     */
+    private volatile long stickyMasterWindow;
+
+    /**
+     * 每秒允许获取的连接数，所有租户合计，小于等于0时不限制
+     */
+    private volatile double connectionRate;
+
+    /**
+     * 获取连接允许的突发数
+     */
+    private volatile int connectionBurst;
+
+    /**
+     * schema隔离时的schema切换方式，按主库url选择
+     */
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private volatile SchemaSwitcher schemaSwitcher = new CatalogSchemaSwitcher();
+
+    /**
+     * 组内租户连接隔离
+     */
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private final TenantBulkhead tenantBulkhead = new TenantBulkhead();
+
+    /**
+     * 组级别的连接获取频率限制
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private final TokenBucketTable connectionRateLimiter = new TokenBucketTable(1);
+
+    /**
+     * 预先过滤的可用成员，仅在成员变化时重建，选库时直接按下标读取
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private volatile Members members = new Members(NO_MEMBERS, NO_MEMBERS, NO_MEMBERS);
+
+    /**
+     * 是否已创建连接池，延迟创建时首次使用前为false
+     */
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    private volatile boolean materialized = true;
+
+    /**
+     * 最近一次被路由到的时间，精度为秒级，用于空闲收缩及LRU淘汰
+     */
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    private volatile long lastUsedAt = System.currentTimeMillis();
+
+    /**
+     * 最近一次无可用成员告警的时间，用于告警限频
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private volatile long noMemberWarnedAt;
+
+    /**
+     * 连接池是否已空闲收缩
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private final AtomicBoolean shrunk = new AtomicBoolean();
+
+    /**
+     * 延迟创建状态，由materializeLock保护
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private final Object materializeLock = new Object();
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private boolean retired;
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private RuntimeException materializeFailure;
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private long materializeFailedAt;
+
+    /**
+     * 构造器
+     *
+     * @param groupName 组名
+     * @param schemaIsolationEnable 是否开启schema隔离
+     * @param loadBalanceStrategy 负载均衡策略
+     * @param masterGroup 主库
+     * @param slaveGroup 从库
+     */
+    public DataSourceGroup(String groupName, boolean schemaIsolationEnable, LoadBalanceStrategy loadBalanceStrategy,
+        List<SnapshotDataSource> masterGroup, List<SnapshotDataSource> slaveGroup) {
+        this.groupName = groupName;
+        this.schemaIsolationEnable = schemaIsolationEnable;
+        this.loadBalanceStrategy = loadBalanceStrategy;
+        this.masterGroup = masterGroup;
+        this.slaveGroup = slaveGroup;
+        refreshMembers();
+    }
+
+    /**
+     * 创建延迟创建连接池的数据源组，仅记录组信息，首次使用时调用materialize创建连接池
+     *
+     * @param groupName 组名
+     * @param schemaIsolationEnable 是否开启schema隔离
+     * @param loadBalanceStrategy 负载均衡策略
+     * @return 数据源组
+     */
+    public static DataSourceGroup pending(String groupName, boolean schemaIsolationEnable,
+        LoadBalanceStrategy loadBalanceStrategy) {
+        DataSourceGroup group = new DataSourceGroup(groupName, schemaIsolationEnable, loadBalanceStrategy, null, null);
+        group.materialized = false;
+        return group;
+    }
+
+    /**
+     * 创建连接池，并发的首次请求只有一个执行创建，其余等待其结果；
+     * 创建失败后短时间内的请求直接返回失败，避免故障库被反复创建
+     *
+     * @param loader 创建连接池并设置主从库
+     */
+    public void materialize(Consumer<DataSourceGroup> loader) {
+        if (materialized) {
+            return;
+        }
+        synchronized (materializeLock) {
+            if (materialized) {
+                return;
+            }
+            if (retired) {
+                throw new RoutingException(groupName + " has been removed");
+            }
+            if (materializeFailure != null
+                && System.currentTimeMillis() - materializeFailedAt < MATERIALIZE_RETRY_INTERVAL_MILLIS) {
+                throw materializeFailure;
+            }
+            try {
+                loader.accept(this);
+                materializeFailure = null;
+                lastUsedAt = System.currentTimeMillis();
+                materialized = true;
+            } catch (RuntimeException e) {
+                materializeFailure = e;
+                materializeFailedAt = System.currentTimeMillis();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * 释放连接池，数据源组回到未创建状态，下次使用时重新创建
+     *
+     * @return 被移出的数据源，由调用方排空后关闭
+     */
+    public List<SnapshotDataSource> dematerialize() {
+        synchronized (materializeLock) {
+            if (!materialized || retired) {
+                return Collections.emptyList();
+            }
+            return detachMembers();
+        }
+    }
+
+    /**
+     * 标记为已移除并移出全部成员，此后不再创建；已获取的连接不受影响
+     *
+     * @return 被移出的数据源，由调用方排空后关闭
+     */
+    public List<SnapshotDataSource> retire() {
+        synchronized (materializeLock) {
+            retired = true;
+            if (!materialized) {
+                return Collections.emptyList();
+            }
+            return detachMembers();
+        }
+    }
+
+    private List<SnapshotDataSource> detachMembers() {
+        // 先标记未创建，并发请求读取到空成员时重新创建，已移除的组创建时失败
+        materialized = false;
+        shrunk.set(false);
+        List<SnapshotDataSource> removed = new ArrayList<>();
+        synchronized (this) {
+            Optional.ofNullable(masterGroup).ifPresent(removed::addAll);
+            Optional.ofNullable(slaveGroup).ifPresent(removed::addAll);
+            masterGroup = Collections.emptyList();
+            slaveGroup = Collections.emptyList();
+            refreshMembers();
+        }
+        return removed;
+    }
+
+    /**
+     * 记录被路由到的时间，一秒内只写一次，避免热点组的写竞争
+     */
+    public void touch() {
+        long now = System.currentTimeMillis();
+        if (now - lastUsedAt >= TOUCH_RESOLUTION_MILLIS) {
+            lastUsedAt = now;
+        }
+    }
+
+    /**
+     * 获取一个连接令牌，超出组级别的频率限制时失败
+     *
+     * @return 是否获取成功
+     */
+    boolean tryAcquireConnectionRate() {
+        return connectionRateLimiter.tryAcquire(groupName, connectionRate, connectionBurst);
+    }
+
+    /**
+     * 连接池是否已空闲收缩
+     *
+     * @return 判断结果
      */
-    private List<SnapshotDataSource> masterGroup;
+    public boolean isShrunk() {
+        return shrunk.get();
+    }
 
     /**
-     * 从库
+     * 标记空闲收缩
+     *
+     * @return 是否由未收缩变为收缩
      */
-    private List<SnapshotDataSource> slaveGroup;
+    public boolean markShrunk() {
+        return shrunk.compareAndSet(false, true);
+    }
+
+    /**
+     * 清除空闲收缩标记
+     *
+     * @return 是否由收缩变为未收缩
+     */
+    public boolean clearShrunk() {
+        return shrunk.compareAndSet(true, false);
+    }
+
+    /**
+     * 未创建连接池时标记为已移除，此后不再创建
+     *
+     * @return 是否为未创建连接池的组
+     */
+    public boolean retireIfPending() {
+        if (materialized) {
+            return false;
+        }
+        synchronized (materializeLock) {
+            if (materialized) {
+                return false;
+            }
+            retired = true;
+            return true;
+        }
+    }
 
     /**
      * 获取组
@@ -70,20 +370,199 @@ public class DataSourceGroup {
      * @return 数据源组
      */
     public SnapshotDataSource getDataSource() {
-        String dbStrategy = TenantContext.getDbStrategyType();
-        Optional.ofNullable(masterGroup).ifPresent(master -> masterGroup = master.stream().filter(item -> !item.isClosed()).collect(Collectors.toList()));
-        Optional.ofNullable(slaveGroup).ifPresent(slave ->
-            slaveGroup = slave.stream().filter(item -> !item.isClosed()).collect(Collectors.toList()));
-        boolean selectMaster = Constants.DB_MASTER.equalsIgnoreCase(dbStrategy) || CollectionUtils.isEmpty(slaveGroup);
-        log.warn("{} select db {}", TenantContext.getDomain(), selectMaster ? Constants.DB_MASTER : Constants.DB_SLAVE);
-        if (selectMaster) {
-            if (CollectionUtils.isEmpty(masterGroup)) {
-                log.warn("Failed to write data to the database because data source group {} does not have a valid"
-                    + " primary database.", groupName);
+        return getDataSource(false);
+    }
+
+    /**
+     * 获取组
+     *
+     * @param forceMaster 是否强制使用主库，如处于写后读主库的粘滞窗口内
+     * @return 数据源组
+     */
+    public SnapshotDataSource getDataSource(boolean forceMaster) {
+        String dbStrategy = forceMaster ? Constants.DB_MASTER : TenantContext.getDbStrategyType();
+        SnapshotDataSource selected = select(members, dbStrategy);
+        if (selected != null && selected.isClosed()) {
+            // 成员在快照重建前被关闭，重建后重新选取
+            refreshMembers();
+            selected = select(members, dbStrategy);
+        }
+        return selected;
+    }
+
+    private SnapshotDataSource select(Members current, String dbStrategy) {
+        boolean selectMaster = Constants.DB_MASTER.equalsIgnoreCase(dbStrategy) || current.slaves.length == 0;
+        if (log.isDebugEnabled()) {
+            log.debug("{} select db {}", TenantContext.getDomain(),
+                selectMaster ? Constants.DB_MASTER : Constants.DB_SLAVE);
+        }
+        SnapshotDataSource[] candidates = selectMaster ? current.masters : current.slaves;
+        if (candidates.length == 0) {
+            // 主库全部熔断时兜底选取最早失败的主库，避免熔断期间写请求全部失败
+            SnapshotDataSource fallback = leastRecentlyFailed(current.fallbackMasters);
+            if (fallback != null) {
+                return fallback;
+            }
+            warnNoMember(dbStrategy);
+            return null;
+        }
+        return candidates.length == 1 ? candidates[0] : loadBalanceStrategy.get(candidates);
+    }
+
+    /**
+     * 无可用成员时告警，每个数据源组限频输出，每次失败由调用方计入no_member指标
+     *
+     * @param dbStrategy 读写类型
+     */
+    private void warnNoMember(String dbStrategy) {
+        long now = System.currentTimeMillis();
+        if (now - noMemberWarnedAt < NO_MEMBER_WARN_INTERVAL_MILLIS) {
+            return;
+        }
+        noMemberWarnedAt = now;
+        log.warn("Data source group {} has no available data source for {} requests.", groupName,
+            Constants.DB_MASTER.equalsIgnoreCase(dbStrategy) ? "write" : "read");
+    }
+
+    private static SnapshotDataSource leastRecentlyFailed(SnapshotDataSource[] fallbackMasters) {
+        SnapshotDataSource selected = null;
+        for (SnapshotDataSource candidate : fallbackMasters) {
+            if (selected == null || candidate.getCircuitBreaker().getLastFailureAt()
+                < selected.getCircuitBreaker().getLastFailureAt()) {
+                selected = candidate;
             }
-            return loadBalanceStrategy.get(masterGroup);
         }
-        return loadBalanceStrategy.get(slaveGroup);
+        return selected;
+    }
+
+    /**
+     * 设置主库
+     *
+     * @param masterGroup 主库
+     */
+    public synchronized void setMasterGroup(List<SnapshotDataSource> masterGroup) {
+        this.masterGroup = masterGroup;
+        refreshMembers();
+    }
+
+    /**
+     * 设置从库
+     *
+     * @param slaveGroup 从库
+     */
+    public synchronized void setSlaveGroup(List<SnapshotDataSource> slaveGroup) {
+        this.slaveGroup = slaveGroup;
+        refreshMembers();
+    }
+
+    /**
+     * 组内新增数据源，替换为新的列表，正在读取旧列表的请求不受影响
+     *
+     * @param dbType 主从类型
+     * @param dataSources 新增的数据源
+     */
+    public synchronized void addMembers(String dbType, List<SnapshotDataSource> dataSources) {
+        if (CollectionUtils.isEmpty(dataSources)) {
+            return;
+        }
+        boolean master = Constants.DB_MASTER.equalsIgnoreCase(dbType);
+        List<SnapshotDataSource> group = new ArrayList<>(
+            Optional.ofNullable(master ? masterGroup : slaveGroup).orElse(Collections.emptyList()));
+        group.addAll(dataSources);
+        if (master) {
+            masterGroup = group;
+        } else {
+            slaveGroup = group;
+        }
+        refreshMembers();
+    }
+
+    /**
+     * 替换组内数据源，替换为新的列表，正在使用旧数据源的请求不受影响
+     *
+     * @param original 被替换的数据源
+     * @param replacement 新数据源，为空时仅移除
+     * @return 是否找到被替换的数据源
+     */
+    public synchronized boolean replaceMember(SnapshotDataSource original, SnapshotDataSource replacement) {
+        List<SnapshotDataSource> masters = replace(masterGroup, original, replacement);
+        List<SnapshotDataSource> slaves = masters == null ? replace(slaveGroup, original, replacement) : null;
+        if (masters == null && slaves == null) {
+            return false;
+        }
+        if (masters != null) {
+            masterGroup = masters;
+        } else {
+            slaveGroup = slaves;
+        }
+        refreshMembers();
+        return true;
+    }
+
+    private static List<SnapshotDataSource> replace(List<SnapshotDataSource> group, SnapshotDataSource original,
+        SnapshotDataSource replacement) {
+        if (group == null) {
+            return null;
+        }
+        for (int i = 0; i < group.size(); i++) {
+            if (group.get(i) != original) {
+                continue;
+            }
+            List<SnapshotDataSource> replaced = new ArrayList<>(group);
+            if (replacement != null) {
+                replaced.set(i, replacement);
+            } else {
+                replaced.remove(i);
+            }
+            return replaced;
+        }
+        return null;
+    }
+
+    /**
+     * 移除组内已关闭的数据源
+     */
+    public synchronized void removeClosedMembers() {
+        masterGroup = openMembers(masterGroup);
+        slaveGroup = openMembers(slaveGroup);
+        refreshMembers();
+    }
+
+    /**
+     * 成员或成员状态变化后，重建可用成员快照
+     */
+    public synchronized void refreshMembers() {
+        members = new Members(availableMembers(masterGroup), availableMembers(slaveGroup),
+            fallbackMembers(masterGroup));
+    }
+
+    private static List<SnapshotDataSource> openMembers(List<SnapshotDataSource> group) {
+        if (group == null) {
+            return null;
+        }
+        List<SnapshotDataSource> open = new ArrayList<>(group.size());
+        for (SnapshotDataSource member : group) {
+            if (!member.isClosed()) {
+                open.add(member);
+            }
+        }
+        return open;
+    }
+
+    private static SnapshotDataSource[] fallbackMembers(List<SnapshotDataSource> group) {
+        if (CollectionUtils.isEmpty(group)) {
+            return NO_MEMBERS;
+        }
+        return group.stream()
+            .filter(member -> !member.isClosed() && !member.isDraining())
+            .toArray(SnapshotDataSource[]::new);
+    }
+
+    private static SnapshotDataSource[] availableMembers(List<SnapshotDataSource> group) {
+        if (CollectionUtils.isEmpty(group)) {
+            return NO_MEMBERS;
+        }
+        return group.stream().filter(SnapshotDataSource::isAvailable).toArray(SnapshotDataSource[]::new);
     }
 
     /**
@@ -92,7 +571,31 @@ public class DataSourceGroup {
      * @return 是否有效
      */
     public boolean isInValid() {
+        if (!materialized) {
+            return false;
+        }
         return (CollectionUtils.isEmpty(masterGroup) || masterGroup.stream().allMatch(SnapshotDataSource::isClosed)) && (
             CollectionUtils.isEmpty(slaveGroup) || slaveGroup.stream().allMatch(SnapshotDataSource::isClosed));
     }
+
+    /**
+     * 可用成员快照，不可变
+     */
+    private static final class Members {
+        private final SnapshotDataSource[] masters;
+
+        private final SnapshotDataSource[] slaves;
+
+        /**
+         * 未关闭的主库，可用主库为空时兜底选取
+         */
+        private final SnapshotDataSource[] fallbackMasters;
+
+        private Members(SnapshotDataSource[] masters, SnapshotDataSource[] slaves,
+            SnapshotDataSource[] fallbackMasters) {
+            this.masters = masters;
+            this.slaves = slaves;
+            this.fallbackMasters = fallbackMasters;
+        }
+    }
 }
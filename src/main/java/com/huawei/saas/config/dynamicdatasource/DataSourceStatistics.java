@@ -0,0 +1,160 @@
+/*
+ * Copyright 2022. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.huawei.saas.config.dynamicdatasource;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 数据源运行时统计，供负载均衡策略读取，更新均为无锁操作
+ *
+ * @since 2022-4-22
+ */
+public class DataSourceStatistics {
+    // 延迟均值的衰减时间常数
+    private static final long LATENCY_DECAY_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    /**
+     * 正在获取连接的请求数
+     */
+    private final AtomicInteger pendingAcquires = new AtomicInteger();
+
+    /**
+     * 已选中该数据源、尚未取得连接的请求数，包括等待租户许可与准入名额的请求，排空时等待其结束
+     */
+    private final AtomicInteger pendingLeases = new AtomicInteger();
+
+    /**
+     * 经路由借出尚未关闭的连接数，连接池状态未知时记录
+     */
+    private final AtomicInteger checkedOut = new AtomicInteger();
+
+    /**
+     * 获取连接耗时均值，纳秒
+     */
+    private final Ewma acquireLatency = new Ewma(LATENCY_DECAY_NANOS);
+
+    /**
+     * 语句执行耗时均值，纳秒
+     */
+    private final Ewma queryLatency = new Ewma(LATENCY_DECAY_NANOS);
+
+    /**
+     * 开始获取连接
+     */
+    void acquireStarted() {
+        pendingAcquires.incrementAndGet();
+    }
+
+    /**
+     * 获取连接结束，无论成功失败
+     */
+    void acquireFinished() {
+        pendingAcquires.decrementAndGet();
+    }
+
+    /**
+     * 请求选中该数据源，开始获取许可
+     */
+    void leaseStarted() {
+        pendingLeases.incrementAndGet();
+    }
+
+    /**
+     * 请求已取得连接并完成借出记录，或获取失败
+     */
+    void leaseFinished() {
+        pendingLeases.decrementAndGet();
+    }
+
+    /**
+     * 借出一个连接
+     */
+    void checkedOut() {
+        checkedOut.incrementAndGet();
+    }
+
+    /**
+     * 借出的连接已关闭
+     */
+    void checkedIn() {
+        checkedOut.decrementAndGet();
+    }
+
+    /**
+     * 记录获取连接耗时
+     *
+     * @param nanos 耗时，纳秒
+     */
+    void recordAcquire(long nanos) {
+        acquireLatency.record(nanos);
+    }
+
+    /**
+     * 记录语句执行耗时
+     *
+     * @param nanos 耗时，纳秒
+     */
+    public void recordQuery(long nanos) {
+        queryLatency.record(nanos);
+    }
+
+    /**
+     * 获取连接耗时均值
+     *
+     * @return 耗时，纳秒
+     */
+    public double getAcquireLatency() {
+        return acquireLatency.get();
+    }
+
+    /**
+     * 语句执行耗时均值
+     *
+     * @return 耗时，纳秒
+     */
+    public double getQueryLatency() {
+        return queryLatency.get();
+    }
+
+    /**
+     * 获取正在获取连接的请求数
+     *
+     * @return 请求数
+     */
+    public int getPendingAcquires() {
+        return pendingAcquires.get();
+    }
+
+    /**
+     * 获取已选中该数据源、尚未取得连接的请求数
+     *
+     * @return 请求数
+     */
+    public int getPendingLeases() {
+        return pendingLeases.get();
+    }
+
+    /**
+     * 获取经路由借出尚未关闭的连接数，仅在连接池状态未知时记录
+     *
+     * @return 连接数
+     */
+    public int getCheckedOut() {
+        return checkedOut.get();
+    }
+}
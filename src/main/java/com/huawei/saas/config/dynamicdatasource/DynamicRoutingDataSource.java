@@ -18,8 +18,18 @@ package com.huawei.saas.config.dynamicdatasource;
 
 import com.huawei.saas.config.balancestrategy.LoadBalanceStrategy;
 import com.huawei.saas.config.balancestrategy.RandomLoadBalanceStrategy;
+import com.huawei.saas.config.binding.CatalogSchemaSwitcher;
 import com.huawei.saas.config.binding.DataSourceBindingStrategy;
+import com.huawei.saas.config.binding.SchemaBindingStrategy;
+import com.huawei.saas.config.binding.SchemaSession;
+import com.huawei.saas.config.binding.SchemaSwitcher;
 import com.huawei.saas.config.context.TenantContext;
+import com.huawei.saas.config.health.CircuitBreaker;
+import com.huawei.saas.config.health.HealthCheckMonitor;
+import com.huawei.saas.config.health.ReplicaLagMonitor;
+import com.huawei.saas.config.health.ReplicaLagProbe;
+import com.huawei.saas.config.metrics.RoutingMetrics;
+import com.huawei.saas.config.trace.RoutingTraceRecorder;
 import com.huawei.saas.constants.Constants;
 import com.huawei.saas.customedprocessor.AbstractDataSourceProcessor;
 import com.huawei.saas.customedprocessor.PoolRefreshProcessor;
@@ -27,11 +37,11 @@ import com.huawei.saas.dbpool.JdbcPool;
 import com.huawei.saas.dbpool.PoolStrategy;
 import com.huawei.saas.dbpool.creator.DataSourceCreator;
 import com.huawei.saas.exception.RoutingException;
-import com.huawei.saas.properties.DataSourceBindingProperty;
 import com.huawei.saas.properties.DataSourceProperty;
 import com.huawei.saas.properties.DynamicSourceProperties;
 import com.huawei.saas.properties.MasterSlaveProperty;
 import com.huawei.saas.utils.BeanUtil;
+import com.huawei.saas.utils.NamedThreadFactory;
 import com.huawei.saas.utils.StringUtil;
 
 import lombok.extern.log4j.Log4j2;
@@ -39,6 +49,7 @@ import lombok.extern.log4j.Log4j2;
 import org.apache.commons.lang.NullArgumentException;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.exception.ExceptionUtils;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cloud.context.scope.refresh.RefreshScopeRefreshedEvent;
 import org.springframework.context.event.EventListener;
@@ -49,6 +60,7 @@ import java.io.IOException;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -57,6 +69,12 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import javax.sql.DataSource;
@@ -68,7 +86,11 @@ import javax.sql.DataSource;
  * @since 2022/4/22
  */
 @Log4j2
-public class DynamicRoutingDataSource extends AbstractDataSource implements DataSourceRegistry {
+public class DynamicRoutingDataSource extends AbstractDataSource implements DataSourceRegistry, DisposableBean {
+    private static final int MAX_ROUTE_ATTEMPTS = 3;
+
+    private static final long DESTROY_CHECK_INTERVAL_MILLIS = 100L;
+
     private final ConcurrentHashMap<String, DataSourceGroup> dataSourceGroupMap = new ConcurrentHashMap<>(16);
 
     // 数据源创建器列表
@@ -84,9 +106,51 @@ public class DynamicRoutingDataSource extends AbstractDataSource implements Data
 
     private final List<AbstractDataSourceProcessor> dataSourceProcessorList = new ArrayList<>(10);
 
+    // 路由快照，dataSourceGroupMap 或绑定关系变化后整体替换
+    private volatile RoutingTable routingTable = RoutingTable.EMPTY;
+
+    // 后台任务共享调度线程池
+    private final ScheduledExecutorService scheduler;
+
+    // 已移出dataSourceGroupMap、待新路由快照发布后排空的数据源组，仅在持有锁的写路径访问
+    private final List<DataSourceGroup> retiredGroups = new ArrayList<>(4);
+
+    // 排空中的连接池，关闭时移除
+    private final Set<PoolDrainTask> drainTasks = ConcurrentHashMap.newKeySet();
+
+    // 健康检查与复制延迟探测线程池，上一次探测未结束的成员不重复提交，线程数不超过成员数
+    private final ExecutorService probeExecutor;
+
+    // 空闲连接池回收
+    private final PoolEvictionManager poolEvictionManager;
+
+    // 物理连接池注册表，开启连接池共用时使用
+    private final PhysicalPoolRegistry physicalPoolRegistry = new PhysicalPoolRegistry();
+
+    // 已实现的schema切换方式
+    private final List<SchemaSwitcher> schemaSwitchers = new ArrayList<>(4);
+
+    // 租户连接获取频率限制
+    private final TokenBucketTable tenantRateLimiter;
+
+    // 各租户等级的准入等待时间
+    private final ConcurrentHashMap<String, WaitTimeHistogram> tierWaitTimes = new ConcurrentHashMap<>(8);
+
     @Autowired
     private DataSourceBindingStrategy dataSourceBindingStrategy;
 
+    @Autowired
+    private SchemaBindingStrategy schemaBindingStrategy;
+
+    @Autowired(required = false)
+    private TenantWriteTracker tenantWriteTracker;
+
+    @Autowired(required = false)
+    private RoutingMetrics routingMetrics = RoutingMetrics.NOOP;
+
+    @Autowired(required = false)
+    private RoutingTraceRecorder routingTraceRecorder;
+
     /**
      * 构造器
      *
@@ -99,19 +163,113 @@ public class DynamicRoutingDataSource extends AbstractDataSource implements Data
             .filter(item -> item.getPoolName() != null)
             .collect(Collectors.toMap(item -> item.getPoolName().toLowerCase(Locale.ENGLISH), creator -> creator)));
         this.dynamicSourceProperties = dynamicSourceProperties;
+        this.tenantRateLimiter = new TokenBucketTable(dynamicSourceProperties.getRateLimitSlots());
         registerJdbcPool();
         poolRefreshProcessInit();
         dataSourceProcessorInit();
+        schemaSwitchers.addAll(
+            BeanUtil.getImplementationList(SchemaSwitcher.class, this.getClass().getClassLoader()));
         poolBeanInit(this.dynamicSourceProperties, poolTypeRegistry);
-        Map<String, MasterSlaveProperty> map = this.dynamicSourceProperties.getDataSourceMap();
-        if (map == null || map.isEmpty()) {
+        registerOnStartup(this.dynamicSourceProperties.getDataSourceMap());
+        publishRoutingTable();
+        this.scheduler = new ScheduledThreadPoolExecutor(Math.max(dynamicSourceProperties.getSchedulerPoolSize(), 1),
+            new NamedThreadFactory("tenant-router-scheduler"));
+        this.probeExecutor = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60L, TimeUnit.SECONDS,
+            new SynchronousQueue<>(), new NamedThreadFactory("tenant-router-probe"));
+        this.poolEvictionManager = new PoolEvictionManager(() -> routingTable.getGroups().values(),
+            dynamicSourceProperties, this::evictDataSourceGroup);
+        startMaintenance();
+    }
+
+    /**
+     * 启动后台任务
+     */
+    private void startMaintenance() {
+        List<ReplicaLagProbe> probes = BeanUtil.getImplementationList(ReplicaLagProbe.class,
+            this.getClass().getClassLoader());
+        long lagCheckInterval = Math.max(dynamicSourceProperties.getLagCheckInterval(), 100L);
+        scheduler.scheduleWithFixedDelay(
+            new ReplicaLagMonitor(() -> routingTable.getGroups().values(), dynamicSourceProperties, probes,
+                probeExecutor),
+            lagCheckInterval, lagCheckInterval, TimeUnit.MILLISECONDS);
+        long healthCheckInterval = Math.max(dynamicSourceProperties.getHealthCheckInterval(), 100L);
+        scheduler.scheduleWithFixedDelay(new HealthCheckMonitor(() -> routingTable.getGroups().values(),
+                dynamicSourceProperties, dynamicSourceProperties.isHealthCheckActive(), probeExecutor),
+            healthCheckInterval, healthCheckInterval, TimeUnit.MILLISECONDS);
+        long evictionInterval = Math.max(dynamicSourceProperties.getEvictionInterval(), 100L);
+        scheduler.scheduleWithFixedDelay(poolEvictionManager, evictionInterval, evictionInterval,
+            TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 关闭数据源组的连接池，数据源组回到未创建状态，下次使用时重新创建
+     *
+     * @param dataSourceGroup 数据源组
+     */
+    private synchronized void evictDataSourceGroup(DataSourceGroup dataSourceGroup) {
+        if (dataSourceGroupMap.get(dataSourceGroup.getGroupName()) != dataSourceGroup) {
             return;
         }
-        for (Map.Entry<String, MasterSlaveProperty> entry : map.entrySet()) {
-            registerDataSource(entry.getKey(), entry.getValue());
+        // 空闲回收不强制关闭，长事务持有的连接归还后再关闭
+        for (SnapshotDataSource dataSource : dataSourceGroup.dematerialize()) {
+            drainDataSource(dataSourceGroup.getGroupName(), "", dataSource, false);
         }
     }
 
+    /**
+     * 排空后关闭数据源，使用中的连接全部归还或超过排空时限后关闭
+     *
+     * @param groupName 组名
+     * @param dbType 主从类型，可为空
+     * @param dataSource 已移出数据源组的数据源
+     */
+    private void drainDataSource(String groupName, String dbType, SnapshotDataSource dataSource) {
+        drainDataSource(groupName, dbType, dataSource, true);
+    }
+
+    /**
+     * 排空后关闭数据源
+     *
+     * @param groupName 组名
+     * @param dbType 主从类型，可为空
+     * @param dataSource 已移出数据源组的数据源
+     * @param closeOnTimeout 超过排空时限后是否强制关闭，否则等待使用中的连接全部归还
+     */
+    private void drainDataSource(String groupName, String dbType, SnapshotDataSource dataSource,
+        boolean closeOnTimeout) {
+        if (dataSource == null || dataSource.isClosed()) {
+            return;
+        }
+        routingMetrics.removeDataSource(groupName, dataSource);
+        String identity = getIdentity(groupName, dbType,
+            dataSource.getProperty() != null ? dataSource.getProperty().getUrl() : "");
+        new PoolDrainTask(dataSource, identity, dynamicSourceProperties.getPoolDrainTimeout(), scheduler,
+            drainTasks, closeOnTimeout).start();
+    }
+
+    /**
+     * 移除全部数据源组，等待使用中的连接归还，超过排空时限后强制关闭剩余连接池
+     */
+    @Override
+    public void destroy() {
+        synchronized (this) {
+            retiredGroups.addAll(dataSourceGroupMap.values());
+            dataSourceGroupMap.clear();
+            publishRoutingTable();
+        }
+        long deadline = System.currentTimeMillis() + Math.max(dynamicSourceProperties.getPoolDrainTimeout(), 0L);
+        try {
+            while (!drainTasks.isEmpty() && System.currentTimeMillis() < deadline) {
+                TimeUnit.MILLISECONDS.sleep(DESTROY_CHECK_INTERVAL_MILLIS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        scheduler.shutdownNow();
+        probeExecutor.shutdownNow();
+        new ArrayList<>(drainTasks).forEach(PoolDrainTask::forceClose);
+    }
+
     private void dataSourceProcessorInit() {
         dataSourceProcessorList.addAll(
             BeanUtil.getImplementationList(AbstractDataSourceProcessor.class, this.getClass().getClassLoader()));
@@ -139,11 +297,87 @@ public class DynamicRoutingDataSource extends AbstractDataSource implements Data
     }
 
     @Override
-    public void registerDataSource(String groupName, MasterSlaveProperty masterSlaveProperty) {
+    public synchronized void registerDataSource(String groupName, MasterSlaveProperty masterSlaveProperty) {
+        doRegisterDataSource(groupName, masterSlaveProperty);
+        publishRoutingTable();
+    }
+
+    /**
+     * 启动时并行创建数据源组，超过启动时限或存在失败的组时，按配置快速失败或降级启动
+     *
+     * @param properties 数据源组配置
+     */
+    private void registerOnStartup(Map<String, MasterSlaveProperty> properties) {
+        long start = System.currentTimeMillis();
+        ParallelGroupInitializer.Result result = newGroupInitializer().initialize(properties,
+            dynamicSourceProperties.getStartupTimeout());
+        dataSourceGroupMap.putAll(result.getGroups());
+        log.info("{} data source groups created in {} ms, {} failed", result.getGroups().size(),
+            System.currentTimeMillis() - start, result.getFailures().size());
+        if (result.getFailures().isEmpty()) {
+            return;
+        }
+        if (dynamicSourceProperties.isStartupFailFast()) {
+            result.getGroups().values().forEach(this::discardDataSourceGroup);
+            dataSourceGroupMap.clear();
+            throw new RoutingException("Failed to create data source groups " + result.getFailures());
+        }
+        log.error("Starting in degraded mode, data source groups unavailable: {}", result.getFailures());
+    }
+
+    /**
+     * 并行创建新增的数据源组，失败的组记录日志后跳过，下次刷新时重试
+     *
+     * @param properties 新增数据源组配置
+     */
+    private void registerInParallel(Map<String, MasterSlaveProperty> properties) {
+        if (properties.isEmpty()) {
+            return;
+        }
+        ParallelGroupInitializer.Result result = newGroupInitializer().initialize(properties, 0L);
+        dataSourceGroupMap.putAll(result.getGroups());
+        if (!result.getFailures().isEmpty()) {
+            log.error("Failed to create data source groups {}", result.getFailures());
+        }
+    }
+
+    private ParallelGroupInitializer newGroupInitializer() {
+        return new ParallelGroupInitializer(dynamicSourceProperties.getInitParallelism(), this::createDataSourceGroup,
+            this::discardDataSourceGroup);
+    }
+
+    private void discardDataSourceGroup(DataSourceGroup dataSourceGroup) {
+        closeQuietly(dataSourceGroup.getGroupName(), dataSourceGroup.getMasterGroup());
+        closeQuietly(dataSourceGroup.getGroupName(), dataSourceGroup.getSlaveGroup());
+    }
+
+    private void closeQuietly(String groupName, List<SnapshotDataSource> dataSourceList) {
+        try {
+            closeDataSource(dataSourceList);
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to close data source group {}", groupName, e);
+        }
+    }
+
+    private void doRegisterDataSource(String groupName, MasterSlaveProperty masterSlaveProperty) {
+        DataSourceGroup dataSourceGroup = createDataSourceGroup(groupName, masterSlaveProperty);
+        if (dataSourceGroup != null) {
+            dataSourceGroupMap.put(groupName, dataSourceGroup);
+        }
+    }
+
+    /**
+     * 创建数据源组，可在多个线程中并行调用
+     *
+     * @param groupName 组名
+     * @param masterSlaveProperty 配置
+     * @return 数据源组，配置无效时为空
+     */
+    private DataSourceGroup createDataSourceGroup(String groupName, MasterSlaveProperty masterSlaveProperty) {
         if (masterSlaveProperty.isInValid()) {
             log.warn("Invalid configuration. Failed to create data source group {}.",
                 masterSlaveProperty.getGroupName());
-            return;
+            return null;
         }
 
         List<LoadBalanceStrategy> balanceStrategies = BeanUtil.getImplementationList(LoadBalanceStrategy.class,
@@ -153,36 +387,111 @@ public class DynamicRoutingDataSource extends AbstractDataSource implements Data
         LoadBalanceStrategy loadBalanceStrategy = balanceStrategyMap.getOrDefault(
             masterSlaveProperty.getLoadBalanceStrategy(), new RandomLoadBalanceStrategy());
 
-        // 解析出区分master|slave|schema的结构
-        DataSourceGroup dataSourceGroup = new DataSourceGroup(groupName, masterSlaveProperty.isSchemaIsolationEnable(),
-            loadBalanceStrategy, createDataSource(masterSlaveProperty.getMaster(), Constants.DB_MASTER, groupName),
-            createDataSource(masterSlaveProperty.getSlave(), Constants.DB_SLAVE, groupName));
-        dataSourceGroupMap.put(groupName, dataSourceGroup);
+        // 延迟创建时仅记录组信息，首次路由到该组时创建连接池
+        DataSourceGroup dataSourceGroup = DataSourceGroup.pending(groupName,
+            masterSlaveProperty.isSchemaIsolationEnable(), loadBalanceStrategy);
+        applyGroupSettings(dataSourceGroup, masterSlaveProperty);
+        if (!dynamicSourceProperties.isLazyInit()) {
+            dataSourceGroup.materialize(group -> loadMembers(group, masterSlaveProperty));
+        }
+        return dataSourceGroup;
     }
 
-    @Override
-    public void unRegisterDataSource(DataSourceGroup dataSourceGroup) throws IOException {
-        if (dataSourceGroup == null || dataSourceGroup.isInValid()) {
-            return;
-        }
-        if (!CollectionUtils.isEmpty(dataSourceGroup.getMasterGroup())) {
-            closeDataSource(dataSourceGroup.getMasterGroup());
+    /**
+     * 首次使用时按最新配置创建连接池
+     *
+     * @param dataSourceGroup 数据源组
+     */
+    private void materialize(DataSourceGroup dataSourceGroup) {
+        String groupName = dataSourceGroup.getGroupName();
+        MasterSlaveProperty property = Optional.ofNullable(dynamicSourceProperties.getDataSourceMap())
+            .map(map -> map.get(groupName))
+            .orElse(null);
+        if (property == null || property.isInValid()) {
+            throw new RoutingException(groupName + " datasourceGroup not configured");
         }
-        if (!CollectionUtils.isEmpty(dataSourceGroup.getSlaveGroup())) {
-            closeDataSource(dataSourceGroup.getSlaveGroup());
+        long start = System.currentTimeMillis();
+        loadMembers(dataSourceGroup, property);
+        log.warn("Data source group {} created on first use in {} ms", groupName,
+            System.currentTimeMillis() - start);
+
+        // 新建连接池后检查全局上限
+        scheduler.execute(poolEvictionManager);
+    }
+
+    /**
+     * 解析出区分master|slave|schema的结构，创建连接池后设置到数据源组，从库创建失败时关闭已创建的主库
+     *
+     * @param dataSourceGroup 数据源组
+     * @param masterSlaveProperty 配置
+     */
+    private void loadMembers(DataSourceGroup dataSourceGroup, MasterSlaveProperty masterSlaveProperty) {
+        String groupName = dataSourceGroup.getGroupName();
+        boolean schemaIsolation = dataSourceGroup.isSchemaIsolationEnable();
+        List<SnapshotDataSource> masters = createDataSource(masterSlaveProperty.getMaster(), Constants.DB_MASTER,
+            groupName, schemaIsolation);
+        List<SnapshotDataSource> slaves;
+        try {
+            slaves = createDataSource(masterSlaveProperty.getSlave(), Constants.DB_SLAVE, groupName, schemaIsolation);
+        } catch (RuntimeException e) {
+            closeQuietly(groupName, masters);
+            throw e;
         }
+        dataSourceGroup.setMasterGroup(masters);
+        dataSourceGroup.setSlaveGroup(slaves);
+    }
+
+    /**
+     * 同步无需重建连接池的组级别配置，修改立即生效
+     *
+     * @param dataSourceGroup 数据源组
+     * @param masterSlaveProperty 最新配置
+     */
+    private void applyGroupSettings(DataSourceGroup dataSourceGroup, MasterSlaveProperty masterSlaveProperty) {
+        dataSourceGroup.setStickyMasterWindow(masterSlaveProperty.getStickyMasterWindow());
+        dataSourceGroup.setConnectionRate(masterSlaveProperty.getConnectionRate());
+        dataSourceGroup.setConnectionBurst(masterSlaveProperty.getConnectionBurst());
+        dataSourceGroup.setSchemaSwitcher(resolveSchemaSwitcher(masterSlaveProperty));
+    }
+
+    /**
+     * 根据主库url选择schema切换方式，未匹配时使用catalog切换
+     *
+     * @param masterSlaveProperty 配置
+     * @return schema切换方式
+     */
+    private SchemaSwitcher resolveSchemaSwitcher(MasterSlaveProperty masterSlaveProperty) {
+        String url = masterSlaveProperty.getMaster() != null ? masterSlaveProperty.getMaster().getUrl() : null;
+        return schemaSwitchers.stream()
+            .filter(switcher -> switcher.supports(url))
+            .findFirst()
+            .orElseGet(CatalogSchemaSwitcher::new);
+    }
 
-        // master 和 slave 都已经被注销，从数据源列表中删除
-        if (dataSourceGroup.isInValid()) {
-            dataSourceGroupMap.remove(dataSourceGroup.getGroupName());
+    @Override
+    public synchronized void unRegisterDataSource(DataSourceGroup dataSourceGroup) throws IOException {
+        try {
+            doUnRegisterDataSource(dataSourceGroup);
+        } finally {
+            publishRoutingTable();
         }
     }
 
-    private void unRegisterDataSource(SnapshotDataSource snapshotDataSource) throws IOException {
-        if (snapshotDataSource == null || snapshotDataSource.isClosed()) {
+    private void doUnRegisterDataSource(DataSourceGroup dataSourceGroup) {
+        if (dataSourceGroup == null) {
+            return;
+        }
+
+        // 尚未创建连接池，直接删除
+        if (dataSourceGroup.retireIfPending()) {
+            dataSourceGroupMap.remove(dataSourceGroup.getGroupName(), dataSourceGroup);
             return;
         }
-        snapshotDataSource.close();
+
+        // 从数据源列表中删除，新路由快照发布后排空关闭
+        if (dataSourceGroupMap.remove(dataSourceGroup.getGroupName(), dataSourceGroup)) {
+            retiredGroups.add(dataSourceGroup);
+        }
     }
 
     private void closeDataSource(List<SnapshotDataSource> dataSourceList) throws IOException {
@@ -196,39 +505,298 @@ public class DynamicRoutingDataSource extends AbstractDataSource implements Data
 
     @Override
     public DataSourceGroup getDataSourceGroup(String key) {
-        DataSourceGroup dataSourceGroup = null;
-        Map<String, DataSourceBindingProperty> bindingMap = dynamicSourceProperties.getBindingMap();
-        if (bindingMap != null && bindingMap.get(key) != null && StringUtils.isNotBlank(
-            bindingMap.get(key).getGroupName())) {
-            // 配置指定的数据源有效时
-            dataSourceGroup = dataSourceGroupMap.get(bindingMap.get(key).getGroupName());
-            // 配置显示绑定的数据源不存在，直接抛出异常
-            Optional.ofNullable(dataSourceGroup)
-                .orElseThrow(() -> new RoutingException(
-                    String.format(Locale.ENGLISH, "The data source group bound to %s does not exist", key)));
-        }
+        // 读取一次快照，本次路由过程不受并发刷新影响
+        return getDataSourceGroup(routingTable, key);
+    }
 
-        // 指定数据源无效时, 从扩展的数据源适配器中获取数据源组
+    private DataSourceGroup getDataSourceGroup(RoutingTable table, String key) {
+        DataSourceGroup dataSourceGroup = table.route(key);
         if (dataSourceGroup == null) {
-            dataSourceGroup = dataSourceBindingStrategy.getDataSource(dataSourceGroupMap, dynamicSourceProperties);
+            // 配置显示绑定的数据源不存在，直接抛出异常
+            if (table.isDangling(key)) {
+                throw new RoutingException(
+                    String.format(Locale.ENGLISH, "The data source group bound to %s does not exist", key));
+            }
+
+            // 未显式绑定时, 从扩展的数据源适配器中获取数据源组
+            dataSourceGroup = dataSourceBindingStrategy.getDataSource(table.getGroups(), dynamicSourceProperties);
         }
         Optional.ofNullable(dataSourceGroup)
             .orElseThrow(() -> new RoutingException(
                 String.format(Locale.ENGLISH, "The tenant %s is not bound to a data source.", key)));
-        Optional.ofNullable(dataSourceGroup)
-            .ifPresent(source -> log.warn("{} select DataSource {} success!", key,
-                StringUtils.defaultIfBlank(source.getGroupName(), "")));
+        dataSourceGroup.materialize(this::materialize);
+        dataSourceGroup.touch();
+        if (dataSourceGroup.isShrunk() && dataSourceGroup.clearShrunk()) {
+            PoolEvictionManager.restore(dataSourceGroup);
+        }
         return dataSourceGroup;
     }
 
     @Override
     public Connection getConnection() throws SQLException {
-        return getDataSource().getSource().getConnection();
+        return getConnection(SnapshotDataSource::getConnection);
     }
 
     @Override
     public Connection getConnection(String username, String password) throws SQLException {
-        return getDataSource().getSource().getConnection(username, password);
+        return getConnection(dataSource -> dataSource.getConnection(username, password));
+    }
+
+    private Connection getConnection(ConnectionOpener opener) throws SQLException {
+        long start = System.nanoTime();
+        String tenant = TenantContext.getDomain();
+        RoutingTable table;
+        DataSourceGroup dataSourceGroup;
+        SnapshotDataSource dataSource;
+        for (int attempt = 1; ; attempt++) {
+            // 路由与租户限制取自同一个快照，刷新期间不会混用新旧配置
+            table = routingTable;
+            try {
+                dataSourceGroup = getDataSourceGroup(table, tenant);
+            } catch (RuntimeException e) {
+                routingMetrics.recordFailure(RoutingMetrics.CAUSE_UNBOUND);
+                throw e;
+            }
+            try {
+                dataSource = getDataSource(dataSourceGroup);
+            } catch (RuntimeException e) {
+                routingMetrics.recordFailure(RoutingMetrics.CAUSE_NO_MEMBER);
+                throw e;
+            }
+
+            // 选中后即计入在途请求，等待许可期间开始的排空不会关闭连接池；
+            // 排空先标记再检查在途请求，此处先计入再检查标记，计入前已开始排空时重新路由
+            dataSource.getStatistics().leaseStarted();
+            if (!dataSource.isDraining() || attempt >= MAX_ROUTE_ATTEMPTS) {
+                break;
+            }
+            dataSource.getStatistics().leaseFinished();
+        }
+        long routed = System.nanoTime();
+        String schema;
+        Connection connection;
+        Runnable release;
+        try {
+            routingMetrics.recordRouting(dataSourceGroup.getGroupName(), routed - start);
+            routingMetrics.recordTenant(tenant);
+            schema = dataSourceGroup.isSchemaIsolationEnable() ? schemaBindingStrategy.getSchema(tenant) : null;
+            Runnable lease = acquireLease(dataSourceGroup, dataSource, tenant, table.policy(tenant));
+            try {
+                connection = opener.open(dataSource);
+                recordSuccess(dataSourceGroup, dataSource);
+            } catch (SQLException e) {
+                releaseLease(lease);
+                if (CircuitBreaker.isConnectFailure(e)) {
+                    recordFailure(dataSourceGroup, dataSource);
+                }
+                routingMetrics.recordAcquire(dataSourceGroup.getGroupName(), dataSource,
+                    System.nanoTime() - routed, false);
+                routingMetrics.recordFailure(RoutingMetrics.CAUSE_ACQUIRE);
+                throw e;
+            } catch (RuntimeException e) {
+                releaseLease(lease);
+                routingMetrics.recordFailure(RoutingMetrics.CAUSE_ACQUIRE);
+                throw e;
+            }
+            release = trackCheckout(dataSource, lease);
+        } finally {
+            dataSource.getStatistics().leaseFinished();
+        }
+        routingMetrics.recordAcquire(dataSourceGroup.getGroupName(), dataSource, System.nanoTime() - routed, true);
+        Connection bound = ReleasingConnection.wrap(
+            bindSchema(dataSourceGroup, dataSource, connection, tenant, schema, release), release);
+        if (routingTraceRecorder != null && routingTraceRecorder.shouldSample()) {
+            routingTraceRecorder.record(tenant, dataSourceGroup.getGroupName(),
+                dataSource.getProperty() != null ? StringUtil.getUri(dataSource.getProperty().getUrl()) : null,
+                dataSource.getRole(), schema, System.nanoTime() - start);
+        }
+        return bound;
+    }
+
+    /**
+     * schema隔离的数据源组在获取连接时切换到租户的schema，每次获取只切换一次，
+     * 开启schema记录时包装连接，schema未变化时跳过切换，切换失败时关闭连接
+     *
+     * @param dataSourceGroup 数据源组
+     * @param dataSource 数据源
+     * @param connection 连接
+     * @param domain 租户标识
+     * @param schema 租户绑定的schema
+     * @param lease 租户连接许可及准入名额，切换失败时归还
+     * @return 已切换schema的连接
+     * @throws SQLException 切换失败
+     */
+    private Connection bindSchema(DataSourceGroup dataSourceGroup, SnapshotDataSource dataSource,
+        Connection connection, String domain, String schema, Runnable lease) throws SQLException {
+        if (!dataSourceGroup.isSchemaIsolationEnable()) {
+            return connection;
+        }
+        Connection bound = connection;
+        try {
+            Optional.ofNullable(schema)
+                .orElseThrow(() -> new RoutingException(String.format(Locale.ENGLISH,
+                    "The schema isolation function is enabled for the data source bound to tenant %s, "
+                        + "but no schema is bound", domain)));
+            if (dynamicSourceProperties.isCatalogTracking()) {
+                bound = SchemaTrackingConnection.wrap(connection, dataSourceGroup.getSchemaSwitcher(),
+                    dataSource.getPoolStatistics(), dataSource.getIdleSchemas());
+                bound.unwrap(SchemaSession.class).switchSchema(schema);
+            } else {
+                dataSourceGroup.getSchemaSwitcher().switchSchema(connection, schema);
+            }
+            return bound;
+        } catch (SQLException | RuntimeException e) {
+            routingMetrics.recordFailure(RoutingMetrics.CAUSE_SCHEMA);
+            try {
+                bound.close();
+            } catch (SQLException closeException) {
+                e.addSuppressed(closeException);
+            } finally {
+                releaseLease(lease);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 获取租户在数据源组内的连接许可及数据源的准入名额
+     *
+     * @param dataSourceGroup 数据源组
+     * @param dataSource 数据源
+     * @param tenant 租户标识
+     * @param policy 路由所用快照中的租户限制
+     * @return 连接关闭时的归还操作，无需归还时为空
+     * @throws SQLException 租户连接数达到上限或准入等待超时
+     */
+    private Runnable acquireLease(DataSourceGroup dataSourceGroup, SnapshotDataSource dataSource, String tenant,
+        TenantPolicy policy) throws SQLException {
+        checkRateLimit(dataSourceGroup, tenant, policy);
+
+        TenantBulkhead.Permits permits;
+        try {
+            permits = dataSourceGroup.getTenantBulkhead()
+                .acquire(tenant, policy.getMaxConnections(), dynamicSourceProperties.getTenantAcquireTimeout());
+        } catch (SQLException e) {
+            routingMetrics.recordFailure(RoutingMetrics.CAUSE_BULKHEAD);
+            throw e;
+        }
+        PriorityAdmission admission = dynamicSourceProperties.isPriorityAdmission() ? dataSource.getAdmission() : null;
+        if (admission != null) {
+            try {
+                long waited = admission.acquire(policy.getPriority(),
+                    dynamicSourceProperties.getPriorityAgingInterval(), dynamicSourceProperties.getAdmissionTimeout());
+                WaitTimeHistogram waitTimes = tierWaitTimes.get(policy.getTierName());
+                if (waitTimes == null) {
+                    waitTimes = tierWaitTimes.computeIfAbsent(policy.getTierName(), key -> new WaitTimeHistogram());
+                }
+                waitTimes.record(waited);
+            } catch (SQLException | RuntimeException e) {
+                if (permits != null) {
+                    permits.release();
+                }
+                routingMetrics.recordFailure(RoutingMetrics.CAUSE_ADMISSION);
+                throw e;
+            }
+        }
+        if (permits == null && admission == null) {
+            return null;
+        }
+        return () -> {
+            if (admission != null) {
+                admission.release();
+            }
+            if (permits != null) {
+                permits.release();
+            }
+        };
+    }
+
+    /**
+     * 检查租户与数据源组获取连接的频率，超出限制时快速失败
+     *
+     * @param dataSourceGroup 数据源组
+     * @param tenant 租户标识
+     * @param policy 租户限制
+     */
+    private void checkRateLimit(DataSourceGroup dataSourceGroup, String tenant, TenantPolicy policy) {
+        double rate = policy.getConnectionRate();
+        if (!tenantRateLimiter.tryAcquire(tenant, rate, policy.getConnectionBurst())) {
+            routingMetrics.recordFailure(RoutingMetrics.CAUSE_RATE_LIMITED);
+            throw new RoutingException(RoutingException.RATE_LIMITED, String.format(Locale.ENGLISH,
+                "Tenant %s exceeded its connection rate limit %.2f/s.", tenant, rate));
+        }
+        if (!dataSourceGroup.tryAcquireConnectionRate()) {
+            routingMetrics.recordFailure(RoutingMetrics.CAUSE_RATE_LIMITED);
+            throw new RoutingException(RoutingException.RATE_LIMITED, String.format(Locale.ENGLISH,
+                "Data source group %s exceeded its connection rate limit %.2f/s.", dataSourceGroup.getGroupName(),
+                dataSourceGroup.getConnectionRate()));
+        }
+    }
+
+    /**
+     * 连接池状态未知时记录借出的连接数，连接关闭时减少，用于负载估算与排空判断
+     *
+     * @param dataSource 数据源
+     * @param lease 租户许可及准入名额的归还操作，可为空
+     * @return 连接关闭时的归还操作，无需归还时为空
+     */
+    private static Runnable trackCheckout(SnapshotDataSource dataSource, Runnable lease) {
+        if (dataSource.getPoolStatistics().isKnown()) {
+            return lease;
+        }
+        DataSourceStatistics statistics = dataSource.getStatistics();
+        statistics.checkedOut();
+        if (lease == null) {
+            return statistics::checkedIn;
+        }
+        return () -> {
+            statistics.checkedIn();
+            lease.run();
+        };
+    }
+
+    private void releaseLease(Runnable lease) {
+        if (lease != null) {
+            lease.run();
+        }
+    }
+
+    /**
+     * 各租户等级的准入等待时间，开启优先级准入后记录，未配置等级的租户记为default
+     *
+     * @return key = 等级名称
+     */
+    public Map<String, WaitTimeHistogram> getTierWaitTimes() {
+        return Collections.unmodifiableMap(tierWaitTimes);
+    }
+
+    /**
+     * 记录获取连接成功，熔断期间被兜底选中的数据源恢复选库
+     *
+     * @param dataSourceGroup 数据源组
+     * @param dataSource 数据源
+     */
+    private void recordSuccess(DataSourceGroup dataSourceGroup, SnapshotDataSource dataSource) {
+        CircuitBreaker circuitBreaker = dataSource.getCircuitBreaker();
+        circuitBreaker.recordSuccess();
+        if (!circuitBreaker.isSelectable() && circuitBreaker.close()) {
+            dataSourceGroup.refreshMembers();
+        }
+    }
+
+    /**
+     * 记录建立连接失败，连续失败达到阈值时打开熔断，重建可用成员快照
+     *
+     * @param dataSourceGroup 数据源组
+     * @param dataSource 数据源
+     */
+    private void recordFailure(DataSourceGroup dataSourceGroup, SnapshotDataSource dataSource) {
+        if (dataSource.getCircuitBreaker().recordFailure(dynamicSourceProperties.getCircuitFailureThreshold())) {
+            log.warn("Data source {} in group {} removed from routing after {} consecutive failures",
+                StringUtil.getUri(dataSource.getProperty() != null ? dataSource.getProperty().getUrl() : ""),
+                dataSourceGroup.getGroupName(), dataSource.getCircuitBreaker().getConsecutiveFailures());
+            dataSourceGroup.refreshMembers();
+        }
     }
 
     /**
@@ -238,7 +806,18 @@ public class DynamicRoutingDataSource extends AbstractDataSource implements Data
      * @param event 事件
      */
     @EventListener
-    public void refresh(RefreshScopeRefreshedEvent event) {
+    public synchronized void refresh(RefreshScopeRefreshedEvent event) {
+        long start = System.nanoTime();
+        try {
+            refreshAll();
+        } finally {
+            // 部分数据源组刷新失败时，已生效的变更及最新的绑定关系、租户限制同样发布
+            publishRoutingTable();
+            routingMetrics.recordRefresh(System.nanoTime() - start);
+        }
+    }
+
+    private void refreshAll() {
         // 判断各连接池的实现，确定是否重建连接池，先新增，再更新，最后才删除
         Map<String, MasterSlaveProperty> dataSourceMap = dynamicSourceProperties.getDataSourceMap();
         // 避免误操作，当最新的配置没有数据源信息时，不进行任何操作
@@ -258,24 +837,27 @@ public class DynamicRoutingDataSource extends AbstractDataSource implements Data
 
     private void clear() {
         List<String> remove = new ArrayList<>(16);
-        Optional.of(dataSourceGroupMap).ifPresent(groups -> groups.forEach((key, value) -> {
-            removeClosedDataSource(value.getMasterGroup());
-            removeClosedDataSource(value.getSlaveGroup());
+        dataSourceGroupMap.forEach((key, value) -> {
+            value.removeClosedMembers();
             if (value.isInValid()) {
                 remove.add(key);
             }
-        }));
+        });
         remove.forEach(dataSourceGroupMap::remove);
     }
 
-    private void removeClosedDataSource(List<SnapshotDataSource> snapshotDataSources) {
-        List<SnapshotDataSource> remove = new ArrayList<>(16);
-        Optional.ofNullable(snapshotDataSources)
-            .ifPresent(sources -> remove.addAll(
-                sources.stream().filter(SnapshotDataSource::isClosed).collect(Collectors.toList())));
-        if (!CollectionUtils.isEmpty(snapshotDataSources) && !CollectionUtils.isEmpty(remove)) {
-            snapshotDataSources.removeAll(remove);
+    /**
+     * 根据当前数据源组与绑定关系重建路由快照并整体替换，仅在持有锁的写路径调用
+     */
+    private void publishRoutingTable() {
+        routingTable = RoutingTable.build(dataSourceGroupMap, dynamicSourceProperties);
+        // 新快照生效后再移除旧数据源组的成员，已路由到旧组的请求仍可完成
+        for (DataSourceGroup dataSourceGroup : retiredGroups) {
+            for (SnapshotDataSource dataSource : dataSourceGroup.retire()) {
+                drainDataSource(dataSourceGroup.getGroupName(), "", dataSource);
+            }
         }
+        retiredGroups.clear();
     }
 
     /**
@@ -285,23 +867,21 @@ public class DynamicRoutingDataSource extends AbstractDataSource implements Data
      */
     private void refresh(DynamicSourceProperties lastProperties) {
         Map<String, MasterSlaveProperty> lastPropertyMap = lastProperties.getDataSourceMap();
-        Set<String> effectiveSet = dataSourceGroupMap.keySet();
+        Set<String> effectiveSet = new HashSet<>(dataSourceGroupMap.keySet());
         Set<String> unionSet = new HashSet<>(lastPropertyMap.keySet());
         unionSet.addAll(effectiveSet);
+        Map<String, MasterSlaveProperty> added = new HashMap<>(16);
         unionSet.forEach(groupName -> {
             MasterSlaveProperty lastProperty = lastPropertyMap.get(groupName);
             // 当前生效数据源的属性配置判断是否支持修改，如果支持，新配置缺失，则删除数据源
             if (lastProperty == null || lastPropertyMap.get(groupName).isInValid()) {
-                try {
-                    unRegisterDataSource(dataSourceGroupMap.get(groupName));
-                } catch (IOException e) {
-                    log.error("DataSourceGroup {} close error", groupName);
-                    throw new RoutingException(groupName + " close error");
-                }
+                doUnRegisterDataSource(dataSourceGroupMap.get(groupName));
                 return;
             }
 
             if (effectiveSet.contains(groupName)) {
+                applyGroupSettings(dataSourceGroupMap.get(groupName), lastProperty);
+
                 // 不允许修改已生效数据源
                 if (!lastPropertyMap.get(groupName).isModifyEnable()) {
                     return;
@@ -309,22 +889,20 @@ public class DynamicRoutingDataSource extends AbstractDataSource implements Data
                 // 修改了schema隔离模式，需要重建数据源，重置连接
                 if (lastPropertyMap.get(groupName).isSchemaIsolationEnable() != dataSourceGroupMap.get(groupName)
                     .isSchemaIsolationEnable()) {
-                    try {
-                        unRegisterDataSource(dataSourceGroupMap.get(groupName));
-                        registerDataSource(groupName, lastPropertyMap.get(groupName));
-                    } catch (IOException e) {
-                        log.error(
-                            "Failed to modify the schema isolation mode for {}. Failed to recreate the data source",
-                            groupName);
-                        throw new RoutingException(groupName + " rebuild datasourceGroup error");
-                    }
+                    doUnRegisterDataSource(dataSourceGroupMap.get(groupName));
+                    doRegisterDataSource(groupName, lastPropertyMap.get(groupName));
+                    return;
+                }
+                // 尚未创建连接池，首次使用时按最新配置创建
+                if (!dataSourceGroupMap.get(groupName).isMaterialized()) {
                     return;
                 }
                 modify(lastPropertyMap.get(groupName));
                 return;
             }
-            registerDataSource(groupName, lastPropertyMap.get(groupName));
+            added.put(groupName, lastPropertyMap.get(groupName));
         });
+        registerInParallel(added);
     }
 
     private void modify(MasterSlaveProperty last) {
@@ -365,14 +943,9 @@ public class DynamicRoutingDataSource extends AbstractDataSource implements Data
      */
     private void doRefresh(String groupName, String dbType, DataSourceProperty lastedProperty,
         SnapshotDataSource dataSource) {
-        // 关闭数据源
+        // 关闭数据源，移出数据源组后排空
         if (lastedProperty == null || !lastedProperty.isEnable()) {
-            try {
-                // 关闭连接池,如果关闭异常，则修改属性失败，需要重新触发事件重建连接池
-                unRegisterDataSource(dataSource);
-            } catch (IOException e) {
-                log.error("Failed to close the data source {}", groupName);
-            }
+            retireDataSource(groupName, dbType, dataSource, null);
             return;
         }
 
@@ -385,19 +958,90 @@ public class DynamicRoutingDataSource extends AbstractDataSource implements Data
         // 修改数据源
         if (dataSource.getProperty() != null && (!lastedProperty.dbPropertiesModified(dataSource.getProperty())
             && !dataSource.getProperty().poolRefresh(lastedProperty, poolRefreshProcessorMap))) {
-            // 连接属性&池属性均未修改
+            // 连接属性&池属性均未修改，仅同步负载均衡权重
+            refreshWeight(groupName, dataSource, lastedProperty);
+            return;
+        }
+
+        // 先使用最新配置构建并预热连接池，替换进数据源组后再排空旧连接池；新连接池不可用时保留旧连接池
+        String identity = getIdentity(groupName, dbType, lastedProperty.getUrl());
+        DataSourceGroup dataSourceGroup = dataSourceGroupMap.get(groupName);
+        List<SnapshotDataSource> created = createDataSource(lastedProperty, dbType, groupName,
+            dataSourceGroup != null && dataSourceGroup.isSchemaIsolationEnable());
+        if (created.isEmpty()) {
+            log.error("Failed to create the data source {}, keep the current one", identity);
             return;
         }
+        SnapshotDataSource replacement = created.get(0);
+        if (!warmUp(replacement, identity)) {
+            log.error("Failed to warm up the data source {}, keep the current one", identity);
+            closeQuietly(replacement, identity);
+            return;
+        }
+        retireDataSource(groupName, dbType, dataSource, replacement);
+    }
+
+    /**
+     * 将数据源移出数据源组，可同时换入新数据源；旧连接池不再接收新请求，使用中的连接归还或超过排空时限后关闭
+     *
+     * @param groupName 组名
+     * @param dbType 主从类型
+     * @param dataSource 被移出的数据源
+     * @param replacement 换入的数据源，可为空
+     */
+    private void retireDataSource(String groupName, String dbType, SnapshotDataSource dataSource,
+        SnapshotDataSource replacement) {
+        DataSourceGroup dataSourceGroup = dataSourceGroupMap.get(groupName);
+        boolean replaced = dataSourceGroup != null && dataSource != null
+            && dataSourceGroup.replaceMember(dataSource, replacement);
+        if (!replaced && replacement != null && dataSourceGroup != null) {
+            dataSourceGroup.addMembers(dbType, Collections.singletonList(replacement));
+        }
+        drainDataSource(groupName, dbType, dataSource);
+    }
+
+    /**
+     * 预热连接池，同时持有最小空闲数的连接后归还，使连接池建立连接
+     *
+     * @param dataSource 数据源
+     * @param identity 数据源标识
+     * @return 是否至少成功获取一个连接
+     */
+    private boolean warmUp(SnapshotDataSource dataSource, String identity) {
+        int target = Math.max(dataSource.getPoolStatistics().getMinIdle(), 1);
+        List<Connection> connections = new ArrayList<>(target);
+        try {
+            for (int i = 0; i < target; i++) {
+                connections.add(dataSource.getSource().getConnection());
+            }
+        } catch (SQLException | RuntimeException e) {
+            log.warn("Warm up of the data source {} stopped after {} connections", identity, connections.size(), e);
+        } finally {
+            for (Connection connection : connections) {
+                try {
+                    connection.close();
+                } catch (SQLException e) {
+                    log.debug("Failed to release warm-up connection of {}", identity, e);
+                }
+            }
+        }
+        return !connections.isEmpty();
+    }
+
+    private void closeQuietly(SnapshotDataSource dataSource, String identity) {
         try {
-            // 关闭组内指定数据源连接池,如果关闭异常，则修改属性失败，需要重新触发事件重建连接池
-            unRegisterDataSource(dataSource);
+            dataSource.close();
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to close the data source {}", identity, e);
+        }
+    }
 
-            // 关闭之后，使用最新配置构建数据源连接池，加入数据源组，同时记录对应的配置属性
-            addDataSource(groupName, dbType, lastedProperty);
-        } catch (IOException e) {
-            log.error("Failed to close the data source {}",
-                getIdentity(groupName, dbType, dataSource.getProperty().getUrl()));
+    private void refreshWeight(String groupName, SnapshotDataSource dataSource, DataSourceProperty lastedProperty) {
+        if (dataSource.getProperty().getWeight() == lastedProperty.getWeight()) {
+            return;
         }
+        dataSource.getProperty().setWeight(lastedProperty.getWeight());
+        Optional.ofNullable(dataSourceGroupMap.get(groupName)).ifPresent(DataSourceGroup::refreshMembers);
     }
 
     /**
@@ -412,21 +1056,9 @@ public class DynamicRoutingDataSource extends AbstractDataSource implements Data
         if (dataSourceGroup == null) {
             return;
         }
-        List<SnapshotDataSource> dataSource = createDataSource(dataSourceProperty, dbType, groupName);
-        if (CollectionUtils.isEmpty(dataSource)) {
-            return;
-        }
-        if (Constants.DB_MASTER.equalsIgnoreCase(dbType)) {
-            if (dataSourceGroup.getMasterGroup() == null) {
-                dataSourceGroup.setMasterGroup(new ArrayList<>());
-            }
-            dataSourceGroup.getMasterGroup().addAll(dataSource);
-            return;
-        }
-        if (dataSourceGroup.getSlaveGroup() == null) {
-            dataSourceGroup.setSlaveGroup(new ArrayList<>());
-        }
-        dataSourceGroup.getSlaveGroup().addAll(dataSource);
+        List<SnapshotDataSource> dataSource = createDataSource(dataSourceProperty, dbType, groupName,
+            dataSourceGroup.isSchemaIsolationEnable());
+        dataSourceGroup.addMembers(dbType, dataSource);
     }
 
     /**
@@ -457,28 +1089,46 @@ public class DynamicRoutingDataSource extends AbstractDataSource implements Data
         }
     }
 
-    private SnapshotDataSource getDataSource() {
-        DataSourceGroup dataSourceGroup = getDataSourceGroup(TenantContext.getDomain());
+    private SnapshotDataSource getDataSource(DataSourceGroup dataSourceGroup) {
         TenantContext.setSchemaIsolation(dataSourceGroup.isSchemaIsolationEnable());
-        SnapshotDataSource dataSource = dataSourceGroup.getDataSource();
+        TenantContext.setSchemaSwitcher(dataSourceGroup.getSchemaSwitcher());
+        SnapshotDataSource dataSource = dataSourceGroup.getDataSource(isStickyToMaster(dataSourceGroup));
+        if (dataSource == null && !dataSourceGroup.isMaterialized()) {
+            // 连接池在路由过程中被回收，重新创建
+            dataSourceGroup.materialize(this::materialize);
+            dataSource = dataSourceGroup.getDataSource(isStickyToMaster(dataSourceGroup));
+        }
         Optional.ofNullable(dataSourceGroup)
             .orElseThrow(() -> new RuntimeException(TenantContext.getDomain() + " datasourceGroup not configured"));
         Optional.ofNullable(dataSource)
             .orElseThrow(() -> new NullArgumentException(TenantContext.getDomain() + " datasource not configured"));
         Optional.ofNullable(dataSource.getSource())
             .orElseThrow(() -> new NullArgumentException(TenantContext.getDomain() + " datasource closed"));
+        TenantContext.setRoutedDataSource(dataSource);
         return dataSource;
     }
 
+    /**
+     * 租户是否处于写后读主库的粘滞窗口内
+     *
+     * @param dataSourceGroup 数据源组
+     * @return 判断结果
+     */
+    private boolean isStickyToMaster(DataSourceGroup dataSourceGroup) {
+        long window = dataSourceGroup.getStickyMasterWindow();
+        return window > 0 && tenantWriteTracker != null
+            && tenantWriteTracker.isWrittenWithin(TenantContext.getDomain(), window);
+    }
+
     private List<SnapshotDataSource> createDataSource(DataSourceProperty dataSourceProperty, String dbType,
-        String sourceName) {
+        String sourceName, boolean schemaIsolation) {
         List<DataSourceProperty> list = new ArrayList<>();
         list.add(dataSourceProperty);
-        return createDataSource(list, dbType, sourceName);
+        return createDataSource(list, dbType, sourceName, schemaIsolation);
     }
 
     private List<SnapshotDataSource> createDataSource(List<DataSourceProperty> dataSourceProperties, String dbType,
-        String groupName) {
+        String groupName, boolean schemaIsolation) {
         if (CollectionUtils.isEmpty(dataSourceProperties)) {
             return new ArrayList<>();
         }
@@ -504,7 +1154,9 @@ public class DynamicRoutingDataSource extends AbstractDataSource implements Data
             }
 
             try {
-                dataSources.add(createDataSource(item, creator));
+                SnapshotDataSource dataSource = createDataSource(item, creator, schemaIsolation);
+                dataSource.setRole(dbType);
+                dataSources.add(dataSource);
             } catch (CloneNotSupportedException e) {
                 log.error("DataSource {} create error {}", getIdentity(groupName, dbType, item.getUrl()),
                     ExceptionUtils.getFullStackTrace(e));
@@ -515,13 +1167,13 @@ public class DynamicRoutingDataSource extends AbstractDataSource implements Data
         return dataSources;
     }
 
-    private SnapshotDataSource createDataSource(DataSourceProperty property, DataSourceCreator creator)
-        throws CloneNotSupportedException {
+    private SnapshotDataSource createDataSource(DataSourceProperty property, DataSourceCreator creator,
+        boolean schemaIsolation) throws CloneNotSupportedException {
         List<AbstractDataSourceProcessor> validProcessors = dataSourceProcessorList.stream()
             .filter(item -> StringUtils.isBlank(item.getPoolName()) || StringUtils.equals(item.getPoolName(),
                 creator.getPoolName()))
             .collect(Collectors.toList());
-        if (CollectionUtils.isEmpty(validProcessors)) {
+        if (CollectionUtils.isEmpty(validProcessors) && !dynamicSourceProperties.isSharePhysicalPools()) {
             return new SnapshotDataSource(property.clone(), creator.createDataSource(property), false);
         }
 
@@ -529,16 +1181,48 @@ public class DynamicRoutingDataSource extends AbstractDataSource implements Data
         for (AbstractDataSourceProcessor processor : validProcessors) {
             processor.beforeCreate(property);
         }
+        DataSourceProperty snapshot = property.clone();
+        if (!dynamicSourceProperties.isSharePhysicalPools()) {
+            return new SnapshotDataSource(snapshot, buildDataSource(property, creator, validProcessors), false);
+        }
+
+        // 连接目标、连接池配置与schema隔离模式相同的数据源共用一个物理连接池
+        SharedDataSource dataSource = physicalPoolRegistry.acquire(
+            PhysicalPoolRegistry.keyOf(property, creator.getPoolName(), schemaIsolation),
+            () -> buildDataSource(property, creator, validProcessors));
+        if (dataSource.isShared()) {
+            log.info("Data source {} shares an existing physical pool", StringUtil.getUri(property.getUrl()));
+        }
+        return new SnapshotDataSource(snapshot, dataSource, false);
+    }
+
+    private DataSource buildDataSource(DataSourceProperty property, DataSourceCreator creator,
+        List<AbstractDataSourceProcessor> validProcessors) {
         DataSource dataSource = creator.createDataSource(property);
         int size = validProcessors.size();
         for (int index = size - 1; index > 0; index--) {
             dataSource = validProcessors.get(index).afterCreate(property, dataSource);
         }
-        return new SnapshotDataSource(property.clone(), dataSource, false);
+        return dataSource;
     }
 
     private String getIdentity(String sourceName, String dbType, String url) {
         return String.join(Constants.UNDERLINE, sourceName, dbType,
             String.valueOf(StringUtils.defaultIfBlank(url, "").hashCode()));
     }
+
+    /**
+     * 从数据源获取连接
+     */
+    @FunctionalInterface
+    private interface ConnectionOpener {
+        /**
+         * 获取连接
+         *
+         * @param dataSource 数据源
+         * @return 连接
+         * @throws SQLException 异常
+         */
+        Connection open(SnapshotDataSource dataSource) throws SQLException;
+    }
 }
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2022. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.huawei.saas.config.dynamicdatasource;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按时间衰减的指数加权移动平均，无锁更新
+ * 采样值高于当前均值时直接取采样值，使变慢的数据源立即被感知；
+ * 长时间无采样时均值向0衰减，使变慢的数据源在一段时间后重新获得流量被再次探测
+ *
+ * @since 2022-4-22
+ */
+public class Ewma {
+    private final double decayNanos;
+
+    // 均值，double的位表示
+    private final AtomicLong value = new AtomicLong(Double.doubleToLongBits(0.0D));
+
+    // 最近一次采样时间
+    private volatile long stamp = System.nanoTime();
+
+    /**
+     * 构造器
+     *
+     * @param decayNanos 衰减时间常数，纳秒
+     */
+    public Ewma(long decayNanos) {
+        this.decayNanos = decayNanos;
+    }
+
+    /**
+     * 记录采样
+     *
+     * @param sample 采样值
+     */
+    public void record(long sample) {
+        long now = System.nanoTime();
+        double weight = Math.exp(-Math.max(now - stamp, 0L) / decayNanos);
+        long current;
+        double next;
+        do {
+            current = value.get();
+            double average = Double.longBitsToDouble(current);
+            next = sample > average ? sample : average * weight + sample * (1.0D - weight);
+        } while (!value.compareAndSet(current, Double.doubleToLongBits(next)));
+        stamp = now;
+    }
+
+    /**
+     * 获取当前均值，按距最近一次采样的时间衰减
+     *
+     * @return 均值
+     */
+    public double get() {
+        double average = Double.longBitsToDouble(value.get());
+        long elapsed = System.nanoTime() - stamp;
+        return elapsed <= 0 ? average : average * Math.exp(-elapsed / decayNanos);
+    }
+}
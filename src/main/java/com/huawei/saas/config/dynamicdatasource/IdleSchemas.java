@@ -0,0 +1,104 @@
+/*
+ * Copyright 2022. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.huawei.saas.config.dynamicdatasource;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.sql.Connection;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 一个物理连接池内各物理连接空闲时的schema
+ * 按物理连接的对象标识记录，不依赖驱动的equals/hashCode；弱引用物理连接，连接被连接池关闭回收后自动清理
+ *
+ * @since 2022-4-22
+ */
+final class IdleSchemas {
+    private final ConcurrentHashMap<Key, String> schemas = new ConcurrentHashMap<>(16);
+
+    private final ReferenceQueue<Connection> queue = new ReferenceQueue<>();
+
+    /**
+     * 物理连接空闲时的schema
+     *
+     * @param physical 物理连接
+     * @return schema，未记录时为空
+     */
+    String get(Connection physical) {
+        return schemas.get(new Key(physical, null));
+    }
+
+    /**
+     * 记录物理连接空闲时的schema
+     *
+     * @param physical 物理连接
+     * @param schema schema，为空时删除记录
+     */
+    void put(Connection physical, String schema) {
+        expunge();
+        if (schema == null) {
+            remove(physical);
+            return;
+        }
+        schemas.put(new Key(physical, queue), schema);
+    }
+
+    /**
+     * 删除物理连接的记录
+     *
+     * @param physical 物理连接
+     */
+    void remove(Connection physical) {
+        schemas.remove(new Key(physical, null));
+    }
+
+    private void expunge() {
+        Reference<? extends Connection> reference;
+        while ((reference = queue.poll()) != null) {
+            schemas.remove(reference);
+        }
+    }
+
+    /**
+     * 按对象标识比较的物理连接弱引用
+     */
+    private static final class Key extends WeakReference<Connection> {
+        private final int hash;
+
+        private Key(Connection connection, ReferenceQueue<Connection> queue) {
+            super(connection, queue);
+            this.hash = System.identityHashCode(connection);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Connection connection = get();
+            return connection != null && connection == ((Key) obj).get();
+        }
+    }
+}
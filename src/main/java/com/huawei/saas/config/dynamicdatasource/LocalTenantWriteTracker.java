@@ -0,0 +1,67 @@
+/*
+ * Copyright 2022. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.huawei.saas.config.dynamicdatasource;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 租户最近写入时间的默认实现，写入时间仅在本节点内可见
+ * 固定大小的时间戳数组，按租户标识哈希定位，不保存租户标识，内存占用固定；
+ * 哈希冲突的租户共享时间戳，只会多读主库，不会在窗口内读到从库；记录过期后自然失效，无需清理
+ *
+ * @since 2022-4-22
+ */
+public class LocalTenantWriteTracker implements TenantWriteTracker {
+    private static final int MAX_CAPACITY = 1 << 24;
+
+    private final AtomicLongArray slots;
+
+    private final int mask;
+
+    /**
+     * 构造器
+     *
+     * @param capacity 槽位数，向上取整为2的幂
+     */
+    public LocalTenantWriteTracker(int capacity) {
+        int size = Integer.highestOneBit(Math.min(Math.max(capacity, 16), MAX_CAPACITY) * 2 - 1);
+        this.slots = new AtomicLongArray(size);
+        this.mask = size - 1;
+    }
+
+    @Override
+    public void recordWrite(String tenant) {
+        if (tenant == null) {
+            return;
+        }
+        slots.lazySet(index(tenant), System.currentTimeMillis());
+    }
+
+    @Override
+    public boolean isWrittenWithin(String tenant, long windowMillis) {
+        if (tenant == null || windowMillis <= 0) {
+            return false;
+        }
+        long last = slots.get(index(tenant));
+        return last != 0L && System.currentTimeMillis() - last < windowMillis;
+    }
+
+    private int index(String tenant) {
+        int hash = tenant.hashCode();
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+}
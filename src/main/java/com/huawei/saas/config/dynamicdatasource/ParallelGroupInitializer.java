@@ -0,0 +1,181 @@
+/*
+ * Copyright 2022. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.huawei.saas.config.dynamicdatasource;
+
+import com.huawei.saas.properties.MasterSlaveProperty;
+import com.huawei.saas.utils.NamedThreadFactory;
+
+import lombok.extern.log4j.Log4j2;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+
+/**
+ * 数据源组并行初始化，限制并发数，各组失败相互隔离
+ * 超过时限未完成的组被放弃，其连接池在创建完成后立即关闭
+ *
+ * @since 2022-4-22
+ */
+@Log4j2
+final class ParallelGroupInitializer {
+    private static final int RUNNING = 0;
+
+    private static final int DONE = 1;
+
+    private static final int ABANDONED = 2;
+
+    private final int parallelism;
+
+    private final BiFunction<String, MasterSlaveProperty, DataSourceGroup> builder;
+
+    private final Consumer<DataSourceGroup> discarder;
+
+    /**
+     * 构造器
+     *
+     * @param parallelism 最大并发数
+     * @param builder 数据源组创建，配置无效时返回空
+     * @param discarder 放弃的数据源组的关闭逻辑
+     */
+    ParallelGroupInitializer(int parallelism, BiFunction<String, MasterSlaveProperty, DataSourceGroup> builder,
+        Consumer<DataSourceGroup> discarder) {
+        this.parallelism = Math.max(parallelism, 1);
+        this.builder = builder;
+        this.discarder = discarder;
+    }
+
+    /**
+     * 创建数据源组
+     *
+     * @param properties 数据源组配置 key = groupName
+     * @param timeoutMillis 总时限，毫秒，小于等于0时不限制
+     * @return 创建结果
+     */
+    Result initialize(Map<String, MasterSlaveProperty> properties, long timeoutMillis) {
+        Result result = new Result();
+        if (properties == null || properties.isEmpty()) {
+            return result;
+        }
+        int threads = Math.min(parallelism, properties.size());
+        ExecutorService executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(), new NamedThreadFactory("tenant-router-pool-init"));
+        Map<String, Task> tasks = new LinkedHashMap<>(properties.size() * 2);
+        try {
+            properties.forEach((groupName, property) -> {
+                Task task = new Task(groupName, property);
+                task.future = executor.submit(task::run);
+                tasks.put(groupName, task);
+            });
+            long deadline = timeoutMillis > 0 ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis) : 0L;
+            tasks.forEach((groupName, task) -> collect(result, task, deadline));
+        } finally {
+            executor.shutdownNow();
+        }
+        return result;
+    }
+
+    private void collect(Result result, Task task, long deadline) {
+        try {
+            DataSourceGroup group = deadline == 0L
+                ? task.future.get()
+                : task.future.get(Math.max(deadline - System.nanoTime(), 0L), TimeUnit.NANOSECONDS);
+            if (group != null) {
+                result.groups.put(task.groupName, group);
+            }
+        } catch (TimeoutException e) {
+            if (task.state.compareAndSet(RUNNING, ABANDONED)) {
+                result.failures.put(task.groupName, "initialization timed out");
+                return;
+            }
+            // 创建恰好在超时后完成
+            collect(result, task, 0L);
+        } catch (ExecutionException e) {
+            log.error("Failed to create data source group {}", task.groupName, e.getCause());
+            result.failures.put(task.groupName, String.valueOf(e.getCause()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            task.state.compareAndSet(RUNNING, ABANDONED);
+            result.failures.put(task.groupName, "initialization interrupted");
+        }
+    }
+
+    /**
+     * 单个数据源组的创建任务
+     */
+    private final class Task {
+        private final String groupName;
+
+        private final MasterSlaveProperty property;
+
+        private final AtomicInteger state = new AtomicInteger(RUNNING);
+
+        private Future<DataSourceGroup> future;
+
+        private Task(String groupName, MasterSlaveProperty property) {
+            this.groupName = groupName;
+            this.property = property;
+        }
+
+        private DataSourceGroup run() {
+            DataSourceGroup group = builder.apply(groupName, property);
+            if (!state.compareAndSet(RUNNING, DONE) && group != null) {
+                log.warn("Data source group {} completed after the initialization deadline, closing", groupName);
+                discarder.accept(group);
+                return null;
+            }
+            return group;
+        }
+    }
+
+    /**
+     * 创建结果
+     */
+    static final class Result {
+        private final Map<String, DataSourceGroup> groups = new LinkedHashMap<>();
+
+        private final Map<String, String> failures = new HashMap<>();
+
+        /**
+         * 创建成功的数据源组
+         *
+         * @return 数据源组 key = groupName
+         */
+        Map<String, DataSourceGroup> getGroups() {
+            return groups;
+        }
+
+        /**
+         * 创建失败或超时的数据源组
+         *
+         * @return 失败原因 key = groupName
+         */
+        Map<String, String> getFailures() {
+            return Collections.unmodifiableMap(failures);
+        }
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright 2022. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.huawei.saas.config.dynamicdatasource;
+
+import com.huawei.saas.properties.DataSourceProperty;
+import com.huawei.saas.utils.StringUtil;
+
+import com.alibaba.fastjson.JSONObject;
+
+import org.apache.commons.lang.StringUtils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+import javax.sql.DataSource;
+
+/**
+ * 物理连接池注册表，连接目标、连接池配置及schema隔离模式相同的数据源共用一个连接池，按引用计数在最后一个使用方关闭时关闭
+ * 同一连接池在多个数据源组间复用时，租户之间依靠schema隔离的连接切换区分，连接归还时切回初始schema；
+ * 共用连接池的数据源使用同一个优先级准入，准入名额不超过连接池最大连接数
+ *
+ * @since 2022-4-22
+ */
+final class PhysicalPoolRegistry {
+    private static final List<String> CONNECTION_SETTINGS = Arrays.asList("jdbcUrl", "url", "username", "password",
+        "driverClassName");
+
+    private final ConcurrentHashMap<String, Entry> pools = new ConcurrentHashMap<>(16);
+
+    /**
+     * 计算连接池的复用标识，由驱动、规范化的连接地址、用户名、密码、连接池配置及schema隔离模式组成，
+     * 仅在内存中使用，不可输出到日志；隔离模式不同的数据源组不共用连接池，避免未隔离的组使用其他租户切换后的schema
+     *
+     * @param property 连接属性
+     * @param poolName 连接池类型
+     * @param schemaIsolation 数据源组是否开启schema隔离
+     * @return 复用标识
+     */
+    static String keyOf(DataSourceProperty property, String poolName, boolean schemaIsolation) {
+        return String.join("|", String.valueOf(schemaIsolation),
+            StringUtils.defaultString(property.getDriverClassName()), normalize(property.getUrl()),
+            StringUtils.defaultString(property.getUsername()), StringUtils.defaultString(property.getPassword()),
+            poolName,
+            poolSettings(property.getPools() != null ? property.getPools().get(poolName) : null));
+    }
+
+    private static String normalize(String url) {
+        String uri = StringUtil.getUri(url);
+        if (StringUtils.isBlank(url) || uri.length() >= url.length()) {
+            return StringUtils.defaultString(uri);
+        }
+        // 参数顺序不影响连接目标
+        String[] params = url.substring(uri.length() + 1).split("&");
+        Arrays.sort(params);
+        return uri + "?" + String.join("&", params);
+    }
+
+    private static String poolSettings(Map<String, Object> settings) {
+        if (settings == null || settings.isEmpty()) {
+            return "";
+        }
+
+        // 比较合并后的连接池配置项，不读取连接池对象，避免触发连接池初始化；连接参数单独参与比较
+        Map<String, Object> sorted = new TreeMap<>(settings);
+        CONNECTION_SETTINGS.forEach(sorted::remove);
+        return JSONObject.toJSONString(sorted);
+    }
+
+    /**
+     * 获取连接池，不存在时创建，同一标识并发获取时只创建一次
+     *
+     * @param key 复用标识
+     * @param factory 创建连接池
+     * @return 引用，关闭时释放
+     */
+    SharedDataSource acquire(String key, Supplier<DataSource> factory) {
+        while (true) {
+            Entry entry = pools.computeIfAbsent(key, Entry::new);
+            synchronized (entry) {
+                if (entry.released) {
+                    // 已被最后一个使用方关闭，重新登记
+                    continue;
+                }
+                if (entry.delegate == null) {
+                    try {
+                        entry.delegate = factory.get();
+                    } catch (RuntimeException e) {
+                        entry.released = true;
+                        pools.remove(key, entry);
+                        throw e;
+                    }
+                }
+                entry.references++;
+                return new SharedDataSource(entry.delegate, this, entry);
+            }
+        }
+    }
+
+    /**
+     * 释放引用，最后一个引用释放时关闭连接池
+     *
+     * @param entry 连接池
+     * @throws IOException 关闭异常
+     */
+    void release(Entry entry) throws IOException {
+        synchronized (entry) {
+            if (entry.released || --entry.references > 0) {
+                return;
+            }
+            entry.released = true;
+            pools.remove(entry.key, entry);
+        }
+        if (entry.delegate instanceof Closeable) {
+            ((Closeable) entry.delegate).close();
+        }
+    }
+
+    /**
+     * 仍有其他引用时释放引用，判断与释放在同一把锁内，并发释放时只有一方被判定为最后一个引用
+     *
+     * @param entry 连接池
+     * @return 是否已释放，最后一个引用不释放，由调用方排空后关闭
+     */
+    boolean releaseIfShared(Entry entry) {
+        synchronized (entry) {
+            if (entry.released || entry.references <= 1) {
+                return false;
+            }
+            entry.references--;
+            return true;
+        }
+    }
+
+    /**
+     * 是否被多个数据源共用
+     *
+     * @param entry 连接池
+     * @return 判断结果
+     */
+    boolean isShared(Entry entry) {
+        synchronized (entry) {
+            return entry.references > 1;
+        }
+    }
+
+    /**
+     * 获取连接池的优先级准入，共用连接池的所有数据源使用同一个准入，首次使用时按连接池最大连接数创建
+     *
+     * @param entry 连接池
+     * @param maxSize 连接池最大连接数
+     * @return 优先级准入，无法获取最大连接数时为空
+     */
+    PriorityAdmission admissionOf(Entry entry, IntSupplier maxSize) {
+        synchronized (entry) {
+            if (entry.admission == null) {
+                int size = maxSize.getAsInt();
+                if (size <= 0) {
+                    return null;
+                }
+                entry.admission = new PriorityAdmission(size);
+            }
+            return entry.admission;
+        }
+    }
+
+    /**
+     * 获取连接池内物理连接空闲时的schema记录，共用连接池的所有数据源使用同一份记录
+     *
+     * @param entry 连接池
+     * @return schema记录
+     */
+    IdleSchemas idleSchemasOf(Entry entry) {
+        return entry.idleSchemas;
+    }
+
+    /**
+     * 登记的连接池
+     */
+    static final class Entry {
+        private final String key;
+
+        private DataSource delegate;
+
+        private int references;
+
+        private boolean released;
+
+        private PriorityAdmission admission;
+
+        private final IdleSchemas idleSchemas = new IdleSchemas();
+
+        private Entry(String key) {
+            this.key = key;
+        }
+    }
+}
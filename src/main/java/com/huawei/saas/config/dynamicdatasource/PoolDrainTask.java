@@ -0,0 +1,157 @@
+/*
+ * Copyright 2022. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.huawei.saas.config.dynamicdatasource;
+
+import com.huawei.saas.dbpool.PoolStatistics;
+
+import lombok.extern.log4j.Log4j2;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 被替换或移除的连接池排空任务
+ * 连接池已移出数据源组不再接收新请求，使用中的连接全部归还或超过排空时限后关闭；
+ * 空闲回收发起的排空不强制关闭，超过排空时限后继续等待使用中的连接归还
+ *
+ * @since 2022-4-22
+ */
+@Log4j2
+final class PoolDrainTask implements Runnable {
+    private static final long CHECK_INTERVAL_MILLIS = 200L;
+
+    private final SnapshotDataSource dataSource;
+
+    private final String identity;
+
+    private final long deadline;
+
+    private final ScheduledExecutorService scheduler;
+
+    private final Set<PoolDrainTask> pending;
+
+    private final boolean closeOnTimeout;
+
+    private boolean timeoutWarned;
+
+    private final AtomicBoolean finished = new AtomicBoolean();
+
+    /**
+     * 构造器
+     *
+     * @param dataSource 待排空的数据源
+     * @param identity 数据源标识，用于日志
+     * @param drainTimeout 排空时限，毫秒
+     * @param scheduler 调度线程池
+     * @param pending 排空中的任务，关闭后移除
+     * @param closeOnTimeout 超过排空时限后是否强制关闭
+     */
+    PoolDrainTask(SnapshotDataSource dataSource, String identity, long drainTimeout,
+        ScheduledExecutorService scheduler, Set<PoolDrainTask> pending, boolean closeOnTimeout) {
+        this.dataSource = dataSource;
+        this.identity = identity;
+        this.deadline = System.currentTimeMillis() + Math.max(drainTimeout, 0L);
+        this.scheduler = scheduler;
+        this.pending = pending;
+        this.closeOnTimeout = closeOnTimeout;
+    }
+
+    /**
+     * 开始排空
+     */
+    void start() {
+        dataSource.setDraining(true);
+        pending.add(this);
+        schedule();
+    }
+
+    /**
+     * 不再等待，立即关闭
+     */
+    void forceClose() {
+        if (!dataSource.isClosed() && !finished.get()) {
+            log.warn("Data source {} still has connections in use on shutdown, closing", identity);
+        }
+        close();
+    }
+
+    @Override
+    public void run() {
+        if (dataSource.isClosed()) {
+            pending.remove(this);
+            return;
+        }
+        boolean drained = isDrained();
+        boolean expired = System.currentTimeMillis() >= deadline;
+        if (!drained && (!expired || !closeOnTimeout)) {
+            if (expired && !timeoutWarned) {
+                timeoutWarned = true;
+                log.warn("Data source {} still has connections in use after drain timeout, waiting for them",
+                    identity);
+            }
+            schedule();
+            return;
+        }
+        if (!drained) {
+            log.warn("Data source {} still has connections in use after drain timeout, closing", identity);
+        }
+        close();
+    }
+
+    private boolean isDrained() {
+        // 已选中该数据源的请求可能仍在等待许可，尚未开始获取连接
+        DataSourceStatistics statistics = dataSource.getStatistics();
+        if (statistics.getPendingLeases() > 0 || statistics.getPendingAcquires() > 0
+            || statistics.getCheckedOut() > 0) {
+            return false;
+        }
+
+        // 共用的连接池仍被其他数据源使用时只释放自身的引用，无需等待；
+        // 是否为最后一个引用由注册表原子判断，最后一个引用按独占的连接池排空后关闭
+        if (dataSource.releaseIfShared()) {
+            return true;
+        }
+        PoolStatistics pool = dataSource.getPoolStatistics();
+        return !pool.isKnown() || pool.getActive() <= 0;
+    }
+
+    private void schedule() {
+        try {
+            scheduler.schedule(this, CHECK_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // 调度线程池已关闭，直接关闭
+            close();
+        }
+    }
+
+    private void close() {
+        if (!finished.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            dataSource.close();
+            log.warn("Data source {} drained and closed", identity);
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to close the data source {}", identity, e);
+        } finally {
+            pending.remove(this);
+        }
+    }
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright 2022. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.huawei.saas.config.dynamicdatasource;
+
+import com.huawei.saas.dbpool.PoolStatistics;
+import com.huawei.saas.properties.DynamicSourceProperties;
+
+import lombok.extern.log4j.Log4j2;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import javax.sql.DataSource;
+
+/**
+ * 空闲数据源组的连接池回收，在共享调度线程中周期执行
+ * 空闲超过idle-shrink-time的组收缩至零个空闲连接，空闲超过idle-evict-time的组关闭连接池，回到未创建状态，下次使用时重新创建；
+ * 打开的连接池数或连接数超过全局上限时，按最近使用时间淘汰最久未使用的组，共用的物理连接池只计一次；
+ * 最近使用时间只在路由时更新，仍有连接在使用或正在获取连接的组不淘汰，避免关闭长事务持有的连接
+ *
+ * @since 2022-4-22
+ */
+@Log4j2
+final class PoolEvictionManager implements Runnable {
+    private final Supplier<Collection<DataSourceGroup>> groupSupplier;
+
+    private final DynamicSourceProperties dynamicSourceProperties;
+
+    private final Consumer<DataSourceGroup> evictor;
+
+    /**
+     * 构造器
+     *
+     * @param groupSupplier 当前生效的数据源组
+     * @param dynamicSourceProperties 配置属性
+     * @param evictor 关闭数据源组的连接池
+     */
+    PoolEvictionManager(Supplier<Collection<DataSourceGroup>> groupSupplier,
+        DynamicSourceProperties dynamicSourceProperties, Consumer<DataSourceGroup> evictor) {
+        this.groupSupplier = groupSupplier;
+        this.dynamicSourceProperties = dynamicSourceProperties;
+        this.evictor = evictor;
+    }
+
+    @Override
+    public void run() {
+        try {
+            long now = System.currentTimeMillis();
+            long shrinkTime = dynamicSourceProperties.getIdleShrinkTime();
+            long evictTime = dynamicSourceProperties.getIdleEvictTime();
+            List<DataSourceGroup> open = new ArrayList<>();
+            for (DataSourceGroup group : groupSupplier.get()) {
+                if (!group.isMaterialized()) {
+                    continue;
+                }
+                long idle = now - group.getLastUsedAt();
+                if (evictTime > 0 && idle >= evictTime && !isInUse(group)) {
+                    evict(group, "idle for " + idle + " ms");
+                    continue;
+                }
+                if (shrinkTime > 0 && idle >= shrinkTime && group.markShrunk()) {
+                    shrink(group);
+                }
+                open.add(group);
+            }
+            enforceBudget(open);
+        } catch (RuntimeException e) {
+            // 避免异常终止周期任务
+            log.error("Pool eviction failed", e);
+        }
+    }
+
+    private void enforceBudget(List<DataSourceGroup> open) {
+        int maxPools = dynamicSourceProperties.getMaxOpenPools();
+        int maxConnections = dynamicSourceProperties.getMaxOpenConnections();
+        if (maxPools <= 0 && maxConnections <= 0) {
+            return;
+        }
+
+        // 共用的物理连接池只计一次，记录引用它的成员数，全部引用释放后才会关闭
+        Map<DataSource, Integer> references = new IdentityHashMap<>();
+        int connections = 0;
+        for (DataSourceGroup group : open) {
+            for (SnapshotDataSource member : members(group)) {
+                DataSource pool = member.getPhysicalPool();
+                if (pool != null && !member.isClosed() && references.merge(pool, 1, Integer::sum) == 1) {
+                    connections += countConnections(member);
+                }
+            }
+        }
+        int pools = references.size();
+        if (isWithinBudget(pools, connections)) {
+            return;
+        }
+
+        // 按最近使用时间从旧到新释放引用，直到关闭的连接池满足上限，保留最近使用的组避免反复创建
+        open.sort(Comparator.comparingLong(DataSourceGroup::getLastUsedAt));
+        List<DataSourceGroup> candidates = new ArrayList<>();
+        for (DataSourceGroup group : open.subList(0, open.size() - 1)) {
+            if (isWithinBudget(pools, connections)) {
+                break;
+            }
+            if (isInUse(group)) {
+                continue;
+            }
+            candidates.add(group);
+            for (SnapshotDataSource member : members(group)) {
+                DataSource pool = member.getPhysicalPool();
+                if (pool == null || member.isClosed() || !references.containsKey(pool)) {
+                    continue;
+                }
+                if (references.merge(pool, -1, Integer::sum) == 0) {
+                    pools--;
+                    connections -= countConnections(member);
+                }
+            }
+        }
+
+        // 只回收会真正关闭连接池的组，连接池仍被其他组引用时回收不减少连接数
+        for (DataSourceGroup group : candidates) {
+            if (members(group).stream()
+                .anyMatch(member -> Objects.equals(references.get(member.getPhysicalPool()), 0))) {
+                evict(group, "pool budget exceeded");
+            }
+        }
+    }
+
+    private boolean isWithinBudget(int pools, int connections) {
+        int maxPools = dynamicSourceProperties.getMaxOpenPools();
+        int maxConnections = dynamicSourceProperties.getMaxOpenConnections();
+        return (maxPools <= 0 || pools <= maxPools) && (maxConnections <= 0 || connections <= maxConnections);
+    }
+
+    private void evict(DataSourceGroup group, String reason) {
+        log.warn("Closing pools of data source group {}, {}", group.getGroupName(), reason);
+        evictor.accept(group);
+    }
+
+    private static void shrink(DataSourceGroup group) {
+        // 与恢复互斥，避免恢复先于收缩完成导致最小空闲数丢失
+        synchronized (group) {
+            if (!group.isShrunk()) {
+                return;
+            }
+            for (SnapshotDataSource member : members(group)) {
+                PoolStatistics pool = member.getPoolStatistics();
+                // 共用的连接池仍被其他数据源组使用，不收缩
+                if (!pool.isKnown() || member.isClosed() || member.isSharedPool()) {
+                    continue;
+                }
+                member.setShrunkMinIdle(pool.getMinIdle());
+                pool.setMinIdle(0);
+                pool.evictIdle();
+            }
+        }
+        log.info("Data source group {} shrunk to zero idle connections", group.getGroupName());
+    }
+
+    /**
+     * 恢复空闲收缩前的最小空闲连接数
+     *
+     * @param group 数据源组
+     */
+    static void restore(DataSourceGroup group) {
+        synchronized (group) {
+            for (SnapshotDataSource member : members(group)) {
+                int minIdle = member.getShrunkMinIdle();
+                if (minIdle < 0 || member.isClosed()) {
+                    continue;
+                }
+                member.getPoolStatistics().setMinIdle(minIdle);
+                member.setShrunkMinIdle(-1);
+            }
+        }
+    }
+
+    /**
+     * 是否有成员仍有连接在使用或正在获取连接
+     *
+     * @param group 数据源组
+     * @return 判断结果
+     */
+    private static boolean isInUse(DataSourceGroup group) {
+        for (SnapshotDataSource member : members(group)) {
+            DataSourceStatistics statistics = member.getStatistics();
+            if (statistics.getPendingLeases() > 0 || statistics.getPendingAcquires() > 0
+                || statistics.getCheckedOut() > 0) {
+                return true;
+            }
+            PoolStatistics pool = member.getPoolStatistics();
+            if (pool.isKnown() && pool.getActive() > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int countConnections(SnapshotDataSource member) {
+        PoolStatistics pool = member.getPoolStatistics();
+        return pool.isKnown() ? pool.getActive() + pool.getIdle() : 0;
+    }
+
+    private static List<SnapshotDataSource> members(DataSourceGroup group) {
+        List<SnapshotDataSource> members = new ArrayList<>();
+        if (group.getMasterGroup() != null) {
+            members.addAll(group.getMasterGroup());
+        }
+        if (group.getSlaveGroup() != null) {
+            members.addAll(group.getSlaveGroup());
+        }
+        return members;
+    }
+}
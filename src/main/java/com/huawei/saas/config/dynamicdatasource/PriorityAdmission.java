@@ -0,0 +1,190 @@
+/*
+ * Copyright 2022. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.huawei.saas.config.dynamicdatasource;
+
+import java.sql.SQLTransientConnectionException;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 连接获取的优先级准入，位于连接池之前，容量与连接池最大连接数一致
+ * 有空闲名额且无人排队时直接通过；名额不足时按优先级排队，归还名额时交给优先级最高的等待者
+ * 等待时间每满一个老化周期优先级提升一级，低等级的租户不会一直等待
+ *
+ * @since 2022-4-22
+ */
+final class PriorityAdmission {
+    /**
+     * 排队顺序：老化后的优先级高者优先，相同时先到先得
+     * 老化后的优先级 = priority + (now - enqueueTime) / agingInterval，与now无关的部分为 enqueueTime - priority * agingInterval
+     */
+    private static final Comparator<Waiter> ORDER = Comparator.comparingLong((Waiter waiter) -> waiter.rank)
+        .thenComparingLong(waiter -> waiter.sequence);
+
+    private final AtomicInteger available;
+
+    private final int capacity;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final PriorityQueue<Waiter> waiters = new PriorityQueue<>(ORDER);
+
+    private volatile int waiting;
+
+    private long sequence;
+
+    /**
+     * 构造器
+     *
+     * @param capacity 容量
+     */
+    PriorityAdmission(int capacity) {
+        this.capacity = capacity;
+        this.available = new AtomicInteger(capacity);
+    }
+
+    /**
+     * 获取名额
+     *
+     * @param priority 优先级，越大越优先
+     * @param agingInterval 老化周期，毫秒
+     * @param timeout 等待时间，毫秒
+     * @return 等待时间，纳秒
+     * @throws SQLTransientConnectionException 等待超时或被中断
+     */
+    long acquire(int priority, long agingInterval, long timeout) throws SQLTransientConnectionException {
+        if (waiting == 0 && tryTake()) {
+            return 0L;
+        }
+        long start = System.nanoTime();
+        Waiter waiter;
+        lock.lock();
+        try {
+            // 归还与入队都在锁内，入队前再检查一次，避免错过刚归还的名额
+            if (tryTake()) {
+                return System.nanoTime() - start;
+            }
+            waiter = new Waiter(Thread.currentThread(),
+                start - (long) priority * TimeUnit.MILLISECONDS.toNanos(Math.max(agingInterval, 1L)), sequence++);
+            waiters.add(waiter);
+            waiting = waiters.size();
+        } finally {
+            lock.unlock();
+        }
+
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(Math.max(timeout, 0L));
+        long remaining;
+        boolean interrupted = false;
+        while (!waiter.granted && (remaining = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(this, remaining);
+            if (Thread.interrupted()) {
+                interrupted = true;
+                break;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (!waiter.granted) {
+            lock.lock();
+            try {
+                if (!waiter.granted) {
+                    waiters.remove(waiter);
+                    waiting = waiters.size();
+                    throw new SQLTransientConnectionException(String.format(Locale.ENGLISH,
+                        "Connection admission timed out after %d ms, %d waiting.", timeout, waiting));
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * 归还名额，有等待者时直接交给优先级最高的等待者
+     */
+    void release() {
+        lock.lock();
+        try {
+            Waiter next = waiters.poll();
+            waiting = waiters.size();
+            if (next == null) {
+                available.incrementAndGet();
+                return;
+            }
+            next.granted = true;
+            LockSupport.unpark(next.thread);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 容量
+     *
+     * @return 名额数
+     */
+    int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * 排队中的请求数
+     *
+     * @return 请求数
+     */
+    int getWaiting() {
+        return waiting;
+    }
+
+    private boolean tryTake() {
+        while (true) {
+            int current = available.get();
+            if (current <= 0) {
+                return false;
+            }
+            if (available.compareAndSet(current, current - 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 等待者
+     */
+    private static final class Waiter {
+        private final Thread thread;
+
+        private final long rank;
+
+        private final long sequence;
+
+        private volatile boolean granted;
+
+        private Waiter(Thread thread, long rank, long sequence) {
+            this.thread = thread;
+            this.rank = rank;
+            this.sequence = sequence;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2022. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.huawei.saas.config.dynamicdatasource;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 关闭时归还租户许可与准入名额的连接，重复关闭只归还一次
+ *
+ * @since 2022-4-22
+ */
+final class ReleasingConnection implements InvocationHandler {
+    private final Connection target;
+
+    private final Runnable release;
+
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    private ReleasingConnection(Connection target, Runnable release) {
+        this.target = target;
+        this.release = release;
+    }
+
+    /**
+     * 包装连接
+     *
+     * @param connection 连接
+     * @param release 连接关闭时执行，为空时不包装
+     * @return 连接
+     */
+    static Connection wrap(Connection connection, Runnable release) {
+        if (release == null) {
+            return connection;
+        }
+        return (Connection) Proxy.newProxyInstance(ReleasingConnection.class.getClassLoader(),
+            new Class<?>[] {Connection.class}, new ReleasingConnection(connection, release));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        switch (method.getName()) {
+            case "close":
+                try {
+                    target.close();
+                } finally {
+                    if (released.compareAndSet(false, true)) {
+                        release.run();
+                    }
+                }
+                return null;
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            default:
+                try {
+                    return method.invoke(target, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+        }
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2022. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.huawei.saas.config.dynamicdatasource;
+
+import com.huawei.saas.properties.DataSourceBindingProperty;
+import com.huawei.saas.properties.DynamicSourceProperties;
+
+import org.apache.commons.lang.StringUtils;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 路由快照，租户 -> 数据源组及租户限制的不可变映射
+ * 启动及每次刷新时在旁路构建，构建完成后整体替换，读取时无需加锁
+ *
+ * @since 2022-4-22
+ */
+final class RoutingTable {
+    /**
+     * 空路由表
+     */
+    static final RoutingTable EMPTY = new RoutingTable(Collections.emptyMap(), Collections.emptyMap(),
+        Collections.emptyMap(), Collections.emptyMap(), TenantPolicy.resolve(null, new DynamicSourceProperties()));
+
+    /**
+     * 数据源组 key = groupName
+     */
+    private final Map<String, DataSourceGroup> groups;
+
+    /**
+     * 显式绑定且数据源组存在的租户 key = 租户标识
+     */
+    private final Map<String, DataSourceGroup> tenantRoutes;
+
+    /**
+     * 显式绑定但数据源组不存在的租户 key = 租户标识 value = 绑定的组名
+     */
+    private final Map<String, String> danglingBindings;
+
+    /**
+     * 配置了绑定关系的租户的限制 key = 租户标识
+     */
+    private final Map<String, TenantPolicy> tenantPolicies;
+
+    /**
+     * 未配置绑定关系的租户的限制
+     */
+    private final TenantPolicy defaultPolicy;
+
+    private RoutingTable(Map<String, DataSourceGroup> groups, Map<String, DataSourceGroup> tenantRoutes,
+        Map<String, String> danglingBindings, Map<String, TenantPolicy> tenantPolicies, TenantPolicy defaultPolicy) {
+        this.groups = groups;
+        this.tenantRoutes = tenantRoutes;
+        this.danglingBindings = danglingBindings;
+        this.tenantPolicies = tenantPolicies;
+        this.defaultPolicy = defaultPolicy;
+    }
+
+    /**
+     * 根据当前生效的数据源组、绑定关系与租户等级构建路由快照
+     *
+     * @param groupMap 生效的数据源组
+     * @param properties 配置属性
+     * @return 路由快照
+     */
+    static RoutingTable build(Map<String, DataSourceGroup> groupMap, DynamicSourceProperties properties) {
+        Map<String, DataSourceBindingProperty> bindingMap = properties.getBindingMap();
+        Map<String, DataSourceGroup> groups = new HashMap<>(groupMap);
+        Map<String, DataSourceGroup> tenantRoutes = new HashMap<>(bindingMap != null ? bindingMap.size() * 2 : 0);
+        Map<String, String> danglingBindings = new HashMap<>(16);
+        Map<String, TenantPolicy> tenantPolicies = new HashMap<>(bindingMap != null ? bindingMap.size() * 2 : 0);
+        if (bindingMap != null) {
+            bindingMap.forEach((tenant, binding) -> {
+                if (binding == null) {
+                    return;
+                }
+                tenantPolicies.put(tenant, TenantPolicy.resolve(binding, properties));
+                if (StringUtils.isBlank(binding.getGroupName())) {
+                    return;
+                }
+                DataSourceGroup group = groups.get(binding.getGroupName());
+                if (group == null) {
+                    danglingBindings.put(tenant, binding.getGroupName());
+                    return;
+                }
+                tenantRoutes.put(tenant, group);
+            });
+        }
+        return new RoutingTable(Collections.unmodifiableMap(groups), tenantRoutes, danglingBindings, tenantPolicies,
+            TenantPolicy.resolve(null, properties));
+    }
+
+    /**
+     * 获取租户显式绑定的数据源组
+     *
+     * @param tenant 租户标识
+     * @return 数据源组，未绑定时为空
+     */
+    DataSourceGroup route(String tenant) {
+        return tenantRoutes.get(tenant);
+    }
+
+    /**
+     * 租户显式绑定的数据源组是否不存在
+     *
+     * @param tenant 租户标识
+     * @return 判断结果
+     */
+    boolean isDangling(String tenant) {
+        return danglingBindings.containsKey(tenant);
+    }
+
+    /**
+     * 获取租户的限制
+     *
+     * @param tenant 租户标识，可为空
+     * @return 租户限制
+     */
+    TenantPolicy policy(String tenant) {
+        TenantPolicy policy = tenant != null ? tenantPolicies.get(tenant) : null;
+        return policy != null ? policy : defaultPolicy;
+    }
+
+    /**
+     * 获取所有数据源组，只读
+     *
+     * @return 数据源组
+     */
+    Map<String, DataSourceGroup> getGroups() {
+        return groups;
+    }
+}
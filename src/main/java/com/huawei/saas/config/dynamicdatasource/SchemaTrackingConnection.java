@@ -0,0 +1,183 @@
+/*
+ * Copyright 2022. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.huawei.saas.config.dynamicdatasource;
+
+import com.huawei.saas.config.binding.SchemaSession;
+import com.huawei.saas.config.binding.SchemaSwitcher;
+import com.huawei.saas.dbpool.PoolStatistics;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Objects;
+
+/**
+ * 记录物理连接当前schema的连接包装，通过SchemaSession切换时，schema与目标相同则跳过；
+ * 空闲时的schema记录在所属物理连接池内，按物理连接的对象标识查找
+ * 连接归还时记录归还后的schema：连接池会恢复schema时记录恢复值，不恢复时记录当前值，
+ * 无法确定连接池行为时主动切回首次获取时的schema，保证下次获取时记录可信；
+ * 多个数据源组共用的连接池同样只记录，不切回，共用连接池的组均开启schema隔离，获取时按记录切换
+ *
+ * @since 2022-4-22
+ */
+final class SchemaTrackingConnection implements InvocationHandler, SchemaSession {
+    private final Connection target;
+
+    private final SchemaSwitcher switcher;
+
+    private final PoolStatistics pool;
+
+    private final IdleSchemas idleSchemas;
+
+    private Connection physical;
+
+    private boolean resolved;
+
+    private String initialSchema;
+
+    private String currentSchema;
+
+    private boolean changed;
+
+    private SchemaTrackingConnection(Connection target, SchemaSwitcher switcher, PoolStatistics pool,
+        IdleSchemas idleSchemas) {
+        this.target = target;
+        this.switcher = switcher;
+        this.pool = pool;
+        this.idleSchemas = idleSchemas;
+    }
+
+    /**
+     * 包装连接
+     *
+     * @param connection 连接池获取的连接
+     * @param switcher schema切换方式
+     * @param pool 连接池状态
+     * @param idleSchemas 所属物理连接池的schema记录
+     * @return 包装后的连接
+     */
+    static Connection wrap(Connection connection, SchemaSwitcher switcher, PoolStatistics pool,
+        IdleSchemas idleSchemas) {
+        return (Connection) Proxy.newProxyInstance(SchemaTrackingConnection.class.getClassLoader(),
+            new Class<?>[] {Connection.class},
+            new SchemaTrackingConnection(connection, switcher, pool, idleSchemas));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        switch (method.getName()) {
+            case "unwrap":
+                return SchemaSession.class.equals(args[0]) ? this : target.unwrap((Class<?>) args[0]);
+            case "isWrapperFor":
+                return SchemaSession.class.equals(args[0]) || target.isWrapperFor((Class<?>) args[0]);
+            case "setCatalog":
+            case "setSchema":
+                // 绕过记录直接切换，不再信任记录
+                forget();
+                return invokeTarget(method, args);
+            case "close":
+                close();
+                return null;
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            default:
+                return invokeTarget(method, args);
+        }
+    }
+
+    private Object invokeTarget(Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    @Override
+    public void switchSchema(String schema) throws SQLException {
+        if (!resolved) {
+            physical = resolvePhysical();
+            currentSchema = idleSchemas.get(physical);
+            if (currentSchema == null) {
+                // 首次获取到该物理连接，查询一次
+                currentSchema = switcher.getSchema(target);
+            }
+            initialSchema = currentSchema;
+            resolved = true;
+        }
+        // 按数据库的标识符规则比较，避免大小写不同导致每次都切换
+        String normalized = switcher.normalizeSchema(schema);
+        if (Objects.equals(normalized, currentSchema)) {
+            return;
+        }
+        try {
+            switcher.switchSchema(target, schema);
+        } catch (SQLException | RuntimeException e) {
+            // 切换结果未知，不再信任记录
+            forget();
+            throw e;
+        }
+        currentSchema = normalized;
+        changed = true;
+    }
+
+    private void forget() {
+        if (physical != null) {
+            idleSchemas.remove(physical);
+        }
+        physical = null;
+        resolved = false;
+    }
+
+    private void close() throws SQLException {
+        if (physical != null) {
+            try {
+                idleSchemas.put(physical, schemaAfterRelease());
+            } catch (SQLException | RuntimeException e) {
+                idleSchemas.remove(physical);
+                target.close();
+                throw e;
+            }
+        }
+        target.close();
+    }
+
+    private String schemaAfterRelease() throws SQLException {
+        if (!changed) {
+            return currentSchema;
+        }
+        if (pool.isKnown()) {
+            String reset = switcher.getResetSchema(pool);
+            return reset != null ? reset : currentSchema;
+        }
+        switcher.switchSchema(target, initialSchema);
+        return initialSchema;
+    }
+
+    private Connection resolvePhysical() {
+        try {
+            Connection unwrapped = target.isWrapperFor(Connection.class) ? target.unwrap(Connection.class) : null;
+            return unwrapped != null ? unwrapped : target;
+        } catch (SQLException | RuntimeException e) {
+            return target;
+        }
+    }
+}
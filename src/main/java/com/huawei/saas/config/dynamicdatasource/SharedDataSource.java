@@ -0,0 +1,158 @@
+/*
+ * Copyright 2022. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.huawei.saas.config.dynamicdatasource;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.IntSupplier;
+import java.util.logging.Logger;
+
+import javax.sql.DataSource;
+
+/**
+ * 共用物理连接池的引用，每个数据源持有独立的引用，关闭时只释放自身的引用
+ *
+ * @since 2022-4-22
+ */
+final class SharedDataSource implements DataSource, Closeable {
+    private final DataSource delegate;
+
+    private final PhysicalPoolRegistry registry;
+
+    private final PhysicalPoolRegistry.Entry entry;
+
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    SharedDataSource(DataSource delegate, PhysicalPoolRegistry registry, PhysicalPoolRegistry.Entry entry) {
+        this.delegate = delegate;
+        this.registry = registry;
+        this.entry = entry;
+    }
+
+    /**
+     * 连接池是否同时被其他数据源使用
+     *
+     * @return 判断结果
+     */
+    boolean isShared() {
+        return !closed.get() && registry.isShared(entry);
+    }
+
+    /**
+     * 共用的物理连接池
+     *
+     * @return 连接池
+     */
+    DataSource getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * 共用连接池的优先级准入
+     *
+     * @param maxSize 连接池最大连接数
+     * @return 优先级准入，无法获取最大连接数时为空
+     */
+    PriorityAdmission getAdmission(IntSupplier maxSize) {
+        return registry.admissionOf(entry, maxSize);
+    }
+
+    /**
+     * 共用连接池的schema记录
+     *
+     * @return schema记录
+     */
+    IdleSchemas getIdleSchemas() {
+        return registry.idleSchemasOf(entry);
+    }
+
+    /**
+     * 连接池仍被其他数据源使用时释放自身的引用
+     *
+     * @return 是否已释放，为最后一个引用时不释放，由调用方排空后关闭
+     */
+    synchronized boolean releaseIfShared() {
+        if (closed.get()) {
+            return true;
+        }
+        if (!registry.releaseIfShared(entry)) {
+            return false;
+        }
+        closed.set(true);
+        return true;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed.compareAndSet(false, true)) {
+            registry.release(entry);
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return delegate.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return delegate.getConnection(username, password);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(delegate)) {
+            return (T) delegate;
+        }
+        return delegate.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(delegate) || delegate.isWrapperFor(iface);
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return delegate.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        delegate.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        delegate.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return delegate.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return delegate.getParentLogger();
+    }
+}
@@ -16,16 +16,24 @@
 
 package com.huawei.saas.config.dynamicdatasource;
 
+import com.huawei.saas.config.health.CircuitBreaker;
+import com.huawei.saas.dbpool.PoolStatistics;
 import com.huawei.saas.exception.CloseNotSupportException;
 import com.huawei.saas.properties.DataSourceProperty;
 import com.huawei.saas.utils.StringUtil;
 
-import lombok.AllArgsConstructor;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
 
 import javax.sql.DataSource;
 
@@ -35,14 +43,251 @@ import javax.sql.DataSource;
  * @since 2022-4-22
  */
 @Data
-@AllArgsConstructor
 @NoArgsConstructor
 public class SnapshotDataSource {
     private DataSourceProperty property;
 
     private DataSource source;
 
-    private boolean closed = false;
+    private volatile boolean closed = false;
+
+    /**
+     * 主从角色，master或slave
+     */
+    @EqualsAndHashCode.Exclude
+    private String role;
+
+    /**
+     * 已移出数据源组，等待使用中的连接归还后关闭
+     */
+    @EqualsAndHashCode.Exclude
+    private volatile boolean draining = false;
+
+    /**
+     * 空闲收缩前的最小空闲连接数，未收缩时为-1
+     */
+    @EqualsAndHashCode.Exclude
+    private volatile int shrunkMinIdle = -1;
+
+    /**
+     * 复制延迟超出阈值，仅从库使用，由后台延迟监控更新
+     */
+    @EqualsAndHashCode.Exclude
+    private volatile boolean lagging = false;
+
+    /**
+     * 最近一次探测到的复制延迟，毫秒
+     */
+    @EqualsAndHashCode.Exclude
+    private volatile long replicaLag = 0L;
+
+    /**
+     * 运行时统计
+     */
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private final DataSourceStatistics statistics = new DataSourceStatistics();
+
+    /**
+     * 熔断状态，由请求路径的获取连接结果与后台健康检查更新
+     */
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private final CircuitBreaker circuitBreaker = new CircuitBreaker();
+
+    /**
+     * 连接池状态，首次使用时解析
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private volatile PoolStatistics poolStatistics;
+
+    /**
+     * 优先级准入，首次使用时按连接池最大连接数创建
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private volatile PriorityAdmission admission;
+
+    /**
+     * 物理连接空闲时的schema记录，首次使用时创建
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private volatile IdleSchemas idleSchemas;
+
+    /**
+     * 路由指标句柄，由RoutingMetrics实现在首次记录时创建，避免每次记录查找指标
+     */
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private volatile Object metricsHandle;
+
+    /**
+     * 构造器
+     *
+     * @param property 连接属性
+     * @param source 数据源
+     * @param closed 是否已关闭
+     */
+    public SnapshotDataSource(DataSourceProperty property, DataSource source, boolean closed) {
+        this.property = property;
+        this.source = source;
+        this.closed = closed;
+    }
+
+    /**
+     * 是否可参与选库
+     *
+     * @return 判断结果
+     */
+    public boolean isAvailable() {
+        return !closed && !draining && !lagging && circuitBreaker.isSelectable();
+    }
+
+    /**
+     * 获取连接，同时记录统计信息
+     *
+     * @return 连接
+     * @throws SQLException 异常
+     */
+    public Connection getConnection() throws SQLException {
+        statistics.acquireStarted();
+        long start = System.nanoTime();
+        try {
+            return source.getConnection();
+        } finally {
+            statistics.recordAcquire(System.nanoTime() - start);
+            statistics.acquireFinished();
+        }
+    }
+
+    /**
+     * 使用指定用户获取连接，同时记录统计信息
+     *
+     * @param username 用户名
+     * @param password 密码
+     * @return 连接
+     * @throws SQLException 异常
+     */
+    public Connection getConnection(String username, String password) throws SQLException {
+        statistics.acquireStarted();
+        long start = System.nanoTime();
+        try {
+            return source.getConnection(username, password);
+        } finally {
+            statistics.recordAcquire(System.nanoTime() - start);
+            statistics.acquireFinished();
+        }
+    }
+
+    /**
+     * 连接池是否与其他数据源共用
+     *
+     * @return 判断结果
+     */
+    public boolean isSharedPool() {
+        return source instanceof SharedDataSource && ((SharedDataSource) source).isShared();
+    }
+
+    /**
+     * 共用的连接池仍被其他数据源使用时释放自身的引用
+     *
+     * @return 是否已释放，未共用或为最后一个引用时不释放
+     */
+    boolean releaseIfShared() {
+        return source instanceof SharedDataSource && ((SharedDataSource) source).releaseIfShared();
+    }
+
+    /**
+     * 获取连接池状态
+     *
+     * @return 连接池状态
+     */
+    public PoolStatistics getPoolStatistics() {
+        PoolStatistics current = poolStatistics;
+        if (current == null || current.getDataSource() != source) {
+            current = PoolStatistics.of(source);
+            poolStatistics = current;
+        }
+        return current;
+    }
+
+    /**
+     * 获取优先级准入，共用连接池时使用连接池级别的准入
+     *
+     * @return 优先级准入，无法获取连接池最大连接数时为空
+     */
+    PriorityAdmission getAdmission() {
+        PriorityAdmission current = admission;
+        if (current == null) {
+            synchronized (this) {
+                current = admission;
+                if (current == null) {
+                    if (source instanceof SharedDataSource) {
+                        current = ((SharedDataSource) source).getAdmission(() -> getPoolStatistics().getMaxSize());
+                    } else {
+                        int maxSize = getPoolStatistics().getMaxSize();
+                        current = maxSize > 0 ? new PriorityAdmission(maxSize) : null;
+                    }
+                    if (current == null) {
+                        return null;
+                    }
+                    admission = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * 获取物理连接空闲时的schema记录，共用连接池时使用连接池级别的记录
+     *
+     * @return schema记录
+     */
+    IdleSchemas getIdleSchemas() {
+        IdleSchemas current = idleSchemas;
+        if (current == null) {
+            synchronized (this) {
+                current = idleSchemas;
+                if (current == null) {
+                    current = source instanceof SharedDataSource
+                        ? ((SharedDataSource) source).getIdleSchemas()
+                        : new IdleSchemas();
+                    idleSchemas = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * 物理连接池，共用连接池的数据源返回同一个对象
+     *
+     * @return 连接池
+     */
+    DataSource getPhysicalPool() {
+        return source instanceof SharedDataSource ? ((SharedDataSource) source).getDelegate() : source;
+    }
+
+    /**
+     * 当前负载，连接池可观测时为使用中连接数与等待线程数之和，否则为经路由借出的连接数与正在获取连接的请求数之和
+     *
+     * @return 负载
+     */
+    public int getLoad() {
+        PoolStatistics pool = getPoolStatistics();
+        if (pool.isKnown()) {
+            return pool.getActive() + pool.getPending();
+        }
+        return statistics.getCheckedOut() + statistics.getPendingAcquires();
+    }
 
     /**
      * 关闭数据源
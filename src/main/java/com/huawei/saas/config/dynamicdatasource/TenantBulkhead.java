@@ -0,0 +1,166 @@
+/*
+ * Copyright 2022. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.huawei.saas.config.dynamicdatasource;
+
+import java.sql.SQLTransientConnectionException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 数据源组内的租户连接隔离，限制单个租户同时持有的连接数，避免单个租户占满共用的连接池
+ * 许可通过CAS获取，不加锁；许可不足时在等待时间内退避重试，超时后快速拒绝；
+ * 租户的许可全部归还时通过CAS标记回收并移除记录，记录数只与当前持有连接的租户数相关
+ *
+ * @since 2022-4-22
+ */
+public final class TenantBulkhead {
+    private static final long MIN_BACKOFF_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private static final long MAX_BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final ConcurrentHashMap<String, Permits> permitsMap = new ConcurrentHashMap<>(16);
+
+    /**
+     * 获取许可，连接关闭时归还
+     *
+     * @param tenant 租户标识
+     * @param limit 最大连接数，小于等于0时不限制
+     * @param timeout 等待时间，毫秒，小于等于0时不等待
+     * @return 许可，不限制时为空
+     * @throws SQLTransientConnectionException 等待超时
+     */
+    Permits acquire(String tenant, int limit, long timeout) throws SQLTransientConnectionException {
+        if (limit <= 0 || tenant == null) {
+            return null;
+        }
+        Permits permits = tryAcquire(tenant, limit);
+        if (permits != null) {
+            return permits;
+        }
+        if (timeout > 0) {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+            long backoff = MIN_BACKOFF_NANOS;
+            long remaining;
+            while ((remaining = deadline - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(Math.min(backoff, remaining));
+                permits = tryAcquire(tenant, limit);
+                if (permits != null) {
+                    return permits;
+                }
+                backoff = Math.min(backoff << 1, MAX_BACKOFF_NANOS);
+            }
+        }
+        Permits current = permitsMap.get(tenant);
+        if (current != null) {
+            current.rejected.increment();
+        }
+        throw new SQLTransientConnectionException(String.format(Locale.ENGLISH,
+            "Tenant %s reached its connection limit %d, request rejected after %d ms.", tenant, limit,
+            Math.max(timeout, 0L)));
+    }
+
+    private Permits tryAcquire(String tenant, int limit) {
+        while (true) {
+            Permits permits = permitsMap.computeIfAbsent(tenant, key -> new Permits(key, permitsMap));
+            if (permits.tryAcquire(limit)) {
+                return permits;
+            }
+            if (!permits.isRetired()) {
+                return null;
+            }
+            // 记录已被回收，归还方尚未移除时协助移除后重新创建
+            permitsMap.remove(tenant, permits);
+        }
+    }
+
+    /**
+     * 当前持有连接的租户被拒绝的次数，租户连接全部归还后记录被回收，次数随之清除
+     *
+     * @return key = 租户标识
+     */
+    public Map<String, Long> getRejections() {
+        Map<String, Long> rejections = new HashMap<>(permitsMap.size() * 2);
+        permitsMap.forEach((tenant, permits) -> rejections.put(tenant, permits.rejected.sum()));
+        return Collections.unmodifiableMap(rejections);
+    }
+
+    /**
+     * 租户当前持有的连接数
+     *
+     * @param tenant 租户标识
+     * @return 连接数
+     */
+    public int getInUse(String tenant) {
+        Permits permits = permitsMap.get(tenant);
+        return permits == null ? 0 : Math.max(permits.inUse.get(), 0);
+    }
+
+    /**
+     * 单个租户的许可
+     */
+    static final class Permits {
+        /**
+         * 已回收的标记，回收后不再发放许可
+         */
+        private static final int RETIRED = -1;
+
+        private final String tenant;
+
+        private final ConcurrentHashMap<String, Permits> owner;
+
+        private final AtomicInteger inUse = new AtomicInteger();
+
+        private final LongAdder rejected = new LongAdder();
+
+        private Permits(String tenant, ConcurrentHashMap<String, Permits> owner) {
+            this.tenant = tenant;
+            this.owner = owner;
+        }
+
+        private boolean tryAcquire(int limit) {
+            while (true) {
+                int current = inUse.get();
+                if (current == RETIRED || current >= limit) {
+                    return false;
+                }
+                if (inUse.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        private boolean isRetired() {
+            return inUse.get() == RETIRED;
+        }
+
+        /**
+         * 归还许可，全部归还时回收记录；与获取并发时CAS失败，记录保留
+         */
+        void release() {
+            if (inUse.decrementAndGet() == 0 && inUse.compareAndSet(0, RETIRED)) {
+                owner.remove(tenant, this);
+            }
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2022. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.huawei.saas.config.dynamicdatasource;
+
+import com.huawei.saas.properties.DataSourceBindingProperty;
+import com.huawei.saas.properties.DynamicSourceProperties;
+import com.huawei.saas.properties.TenantTierProperty;
+
+import lombok.Getter;
+
+import java.util.Map;
+
+/**
+ * 租户获取连接时的限制，构建路由快照时按租户绑定关系、租户等级、全局配置的优先级解析，获取连接时直接读取
+ *
+ * @since 2022-4-22
+ */
+@Getter
+final class TenantPolicy {
+    /**
+     * 未配置等级的租户使用的等级名称
+     */
+    static final String DEFAULT_TIER = "default";
+
+    private final String tierName;
+
+    private final int priority;
+
+    private final int maxConnections;
+
+    private final double connectionRate;
+
+    private final int connectionBurst;
+
+    private TenantPolicy(String tierName, int priority, int maxConnections, double connectionRate,
+        int connectionBurst) {
+        this.tierName = tierName;
+        this.priority = priority;
+        this.maxConnections = maxConnections;
+        this.connectionRate = connectionRate;
+        this.connectionBurst = connectionBurst;
+    }
+
+    /**
+     * 解析租户的限制
+     *
+     * @param binding 租户绑定关系，未绑定时为空
+     * @param properties 配置属性
+     * @return 租户限制
+     */
+    static TenantPolicy resolve(DataSourceBindingProperty binding, DynamicSourceProperties properties) {
+        Map<String, TenantTierProperty> tiers = properties.getTiers();
+        String tierName = binding != null ? binding.getTier() : null;
+        TenantTierProperty tier = tierName != null && tiers != null ? tiers.get(tierName) : null;
+        int maxConnections = properties.getTenantMaxConnections();
+        if (binding != null && binding.getMaxConnections() != null) {
+            maxConnections = binding.getMaxConnections();
+        } else if (tier != null && tier.getMaxConnections() != null) {
+            maxConnections = tier.getMaxConnections();
+        }
+        double rate = properties.getTenantConnectionRate();
+        if (binding != null && binding.getConnectionRate() != null) {
+            rate = binding.getConnectionRate();
+        } else if (tier != null && tier.getConnectionRate() != null) {
+            rate = tier.getConnectionRate();
+        }
+        int burst = properties.getTenantConnectionBurst();
+        if (binding != null && binding.getConnectionBurst() != null) {
+            burst = binding.getConnectionBurst();
+        } else if (tier != null && tier.getConnectionBurst() != null) {
+            burst = tier.getConnectionBurst();
+        }
+        return new TenantPolicy(tier != null ? tierName : DEFAULT_TIER, tier != null ? tier.getPriority() : 0,
+            maxConnections, rate, burst);
+    }
+}
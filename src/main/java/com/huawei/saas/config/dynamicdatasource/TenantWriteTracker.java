@@ -0,0 +1,42 @@
+/*
+ * Copyright 2022. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.huawei.saas.config.dynamicdatasource;
+
+/**
+ * 租户最近写入记录，用于写后读主库的粘滞窗口
+ * 默认实现 {@link LocalTenantWriteTracker} 的写入时间仅在本节点内可见，
+ * 多节点部署需跨节点保证写后读时，自定义实现将写入时间同步到共享存储并注册为bean替换默认实现
+ *
+ * @since 2022-4-22
+ */
+public interface TenantWriteTracker {
+    /**
+     * 记录租户写入，在写操作路径调用，实现需避免阻塞
+     *
+     * @param tenant 租户标识
+     */
+    void recordWrite(String tenant);
+
+    /**
+     * 租户是否在窗口内有过写入，每次选库时调用，实现需避免远程访问，可使用本地缓存
+     *
+     * @param tenant 租户标识
+     * @param windowMillis 窗口，毫秒
+     * @return 判断结果
+     */
+    boolean isWrittenWithin(String tenant, long windowMillis);
+}
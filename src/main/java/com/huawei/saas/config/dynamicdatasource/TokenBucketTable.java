@@ -0,0 +1,86 @@
+/*
+ * Copyright 2022. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.huawei.saas.config.dynamicdatasource;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 令牌桶表，按key哈希定位槽位，每个槽位只保存一个时间戳，内存占用固定
+ * 采用GCRA算法：槽位记录下一个令牌的理论到达时间，获取令牌时通过CAS推进，不加锁；
+ * 哈希冲突的key共享令牌桶，只会更早被限流；限流参数在获取时传入，修改后立即生效
+ *
+ * @since 2022-4-22
+ */
+final class TokenBucketTable {
+    private static final int MAX_CAPACITY = 1 << 24;
+
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final AtomicLongArray slots;
+
+    private final int mask;
+
+    /**
+     * 时间基准，保证记录的时间戳为正数
+     */
+    private final long origin = System.nanoTime();
+
+    /**
+     * 构造器
+     *
+     * @param capacity 槽位数，向上取整为2的幂
+     */
+    TokenBucketTable(int capacity) {
+        int size = Integer.highestOneBit(Math.min(Math.max(capacity, 1), MAX_CAPACITY) * 2 - 1);
+        this.slots = new AtomicLongArray(size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * 获取一个令牌
+     *
+     * @param key 限流对象
+     * @param rate 每秒产生的令牌数，小于等于0时不限流
+     * @param burst 令牌桶容量，即允许的突发数，小于1时按每秒令牌数计算
+     * @return 是否获取成功
+     */
+    boolean tryAcquire(String key, double rate, int burst) {
+        if (rate <= 0D || key == null) {
+            return true;
+        }
+        long interval = Math.max((long) (NANOS_PER_SECOND / rate), 1L);
+        long tolerance = interval * (burst >= 1 ? burst : Math.max((long) Math.ceil(rate), 1L));
+        int index = index(key);
+        long now = System.nanoTime() - origin;
+        while (true) {
+            long arrival = slots.get(index);
+            long next = Math.max(arrival, now) + interval;
+            if (next - now > tolerance) {
+                return false;
+            }
+            if (slots.compareAndSet(index, arrival, next)) {
+                return true;
+            }
+        }
+    }
+
+    private int index(String key) {
+        int hash = key.hashCode();
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2022. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.huawei.saas.config.dynamicdatasource;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 等待时间直方图，按毫秒以2的幂划分桶，无锁记录
+ * 第0个桶为小于1毫秒，第i个桶为[2^(i-1), 2^i)毫秒，最后一个桶包含所有更长的等待
+ *
+ * @since 2022-4-22
+ */
+public final class WaitTimeHistogram {
+    /**
+     * 桶数量，最后一个桶的下界约为16秒
+     */
+    public static final int BUCKETS = 16;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+    private final LongAdder totalNanos = new LongAdder();
+
+    /**
+     * 记录一次等待
+     *
+     * @param nanos 等待时间，纳秒
+     */
+    public void record(long nanos) {
+        long millis = TimeUnit.NANOSECONDS.toMillis(Math.max(nanos, 0L));
+        int index = millis == 0 ? 0 : Math.min(64 - Long.numberOfLeadingZeros(millis), BUCKETS - 1);
+        buckets.incrementAndGet(index);
+        totalNanos.add(nanos);
+    }
+
+    /**
+     * 各桶的计数
+     *
+     * @return 计数，下标对应桶
+     */
+    public long[] getCounts() {
+        long[] counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets.get(i);
+        }
+        return counts;
+    }
+
+    /**
+     * 桶的上界
+     *
+     * @param index 桶下标
+     * @return 上界，毫秒，最后一个桶为Long.MAX_VALUE
+     */
+    public static long getUpperBoundMillis(int index) {
+        return index >= BUCKETS - 1 ? Long.MAX_VALUE : 1L << index;
+    }
+
+    /**
+     * 记录次数
+     *
+     * @return 次数
+     */
+    public long getCount() {
+        long count = 0L;
+        for (int i = 0; i < BUCKETS; i++) {
+            count += buckets.get(i);
+        }
+        return count;
+    }
+
+    /**
+     * 累计等待时间
+     *
+     * @return 纳秒
+     */
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    /**
+     * 估算分位数，返回所在桶的上界
+     *
+     * @param quantile 分位，0到1之间
+     * @return 毫秒
+     */
+    public long getQuantileMillis(double quantile) {
+        long[] counts = getCounts();
+        long total = 0L;
+        for (long count : counts) {
+            total += count;
+        }
+        if (total == 0L) {
+            return 0L;
+        }
+        long target = (long) Math.ceil(total * Math.min(Math.max(quantile, 0D), 1D));
+        long seen = 0L;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= target && seen > 0) {
+                return getUpperBoundMillis(i);
+            }
+        }
+        return getUpperBoundMillis(BUCKETS - 1);
+    }
+}
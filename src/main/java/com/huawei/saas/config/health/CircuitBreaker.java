@@ -0,0 +1,182 @@
+/*
+ * Copyright 2022. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.huawei.saas.config.health;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 数据源成员熔断状态
+ * 连续失败达到阈值后打开，成员不再参与选库；打开时长到期后进入半开，由后台健康检查探测，成功则关闭，失败则重新打开
+ * 请求路径只做计数，状态变化由调用方通知数据源组重建可用成员快照；
+ * 只有建立连接失败计入失败次数，连接池繁忙导致的等待超时不计入
+ *
+ * @since 2022-4-22
+ */
+public final class CircuitBreaker {
+    private static final String DRUID_WAIT_TIMEOUT = "com.alibaba.druid.pool.GetConnectionTimeoutException";
+
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+
+    private volatile State state = State.CLOSED;
+
+    private volatile long openedAt;
+
+    private volatile long lastFailureAt;
+
+    /**
+     * 获取连接的异常是否为建立连接失败，连接池等待超时且未附带建立连接失败的原因时，数据库本身可用，不计入熔断
+     *
+     * @param e 获取连接的异常
+     * @return 判断结果
+     */
+    public static boolean isConnectFailure(SQLException e) {
+        // 连接池等待超时时会附带最近一次建立连接失败的原因
+        Throwable cause = e.getCause() != null ? e.getCause() : e.getNextException();
+        if (cause != null) {
+            return !(cause instanceof InterruptedException);
+        }
+        return !(e instanceof SQLTransientConnectionException || e instanceof SQLTimeoutException
+            || DRUID_WAIT_TIMEOUT.equals(e.getClass().getName()));
+    }
+
+    /**
+     * 是否可参与选库
+     *
+     * @return 判断结果
+     */
+    public boolean isSelectable() {
+        return state == State.CLOSED;
+    }
+
+    /**
+     * 获取当前状态
+     *
+     * @return 状态
+     */
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * 获取连续失败次数
+     *
+     * @return 连续失败次数
+     */
+    public int getConsecutiveFailures() {
+        return consecutiveFailures.get();
+    }
+
+    /**
+     * 最近一次失败的时间
+     *
+     * @return 毫秒时间戳，未失败时为0
+     */
+    public long getLastFailureAt() {
+        return lastFailureAt;
+    }
+
+    /**
+     * 记录成功，清零连续失败次数
+     */
+    public void recordSuccess() {
+        // 先读后写，正常情况下不产生写竞争
+        if (consecutiveFailures.get() != 0) {
+            consecutiveFailures.set(0);
+        }
+    }
+
+    /**
+     * 记录失败
+     *
+     * @param threshold 打开熔断的连续失败次数，小于等于0时不熔断
+     * @return 是否由关闭变为打开
+     */
+    public boolean recordFailure(int threshold) {
+        lastFailureAt = System.currentTimeMillis();
+        int failures = consecutiveFailures.incrementAndGet();
+        if (threshold <= 0 || failures < threshold || state != State.CLOSED) {
+            return false;
+        }
+        return transit(State.CLOSED, State.OPEN);
+    }
+
+    /**
+     * 打开时长到期后进入半开
+     *
+     * @param openDuration 打开时长，毫秒
+     * @return 是否进入半开
+     */
+    public boolean tryHalfOpen(long openDuration) {
+        if (state != State.OPEN || System.currentTimeMillis() - openedAt < openDuration) {
+            return false;
+        }
+        return transit(State.OPEN, State.HALF_OPEN);
+    }
+
+    /**
+     * 半开探测成功或熔断期间被兜底选中并获取连接成功，关闭熔断
+     *
+     * @return 状态是否变化
+     */
+    public boolean close() {
+        boolean changed = transit(State.HALF_OPEN, State.CLOSED) || transit(State.OPEN, State.CLOSED);
+        consecutiveFailures.set(0);
+        return changed;
+    }
+
+    /**
+     * 半开探测失败，重新打开
+     *
+     * @return 状态是否变化
+     */
+    public boolean reopen() {
+        return transit(State.HALF_OPEN, State.OPEN);
+    }
+
+    private synchronized boolean transit(State from, State to) {
+        if (state != from) {
+            return false;
+        }
+        if (to == State.OPEN) {
+            openedAt = System.currentTimeMillis();
+        }
+        state = to;
+        return true;
+    }
+
+    /**
+     * 熔断状态
+     */
+    public enum State {
+        /**
+         * 关闭，正常参与选库
+         */
+        CLOSED,
+
+        /**
+         * 打开，不参与选库
+         */
+        OPEN,
+
+        /**
+         * 半开，等待探测结果，不参与选库
+         */
+        HALF_OPEN
+    }
+}
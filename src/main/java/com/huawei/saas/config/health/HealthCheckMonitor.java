@@ -0,0 +1,153 @@
+/*
+ * Copyright 2022. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.huawei.saas.config.health;
+
+import com.huawei.saas.config.dynamicdatasource.DataSourceGroup;
+import com.huawei.saas.config.dynamicdatasource.SnapshotDataSource;
+import com.huawei.saas.properties.DynamicSourceProperties;
+import com.huawei.saas.utils.StringUtil;
+
+import lombok.extern.log4j.Log4j2;
+
+import org.springframework.util.CollectionUtils;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Supplier;
+
+/**
+ * 数据源成员健康检查，在共享调度线程中周期执行，各成员的探测在探测线程池中并行进行，整体不超过health-check-timeout
+ * 对熔断打开且到期的成员做半开探测，决定恢复或继续熔断；开启主动检查时同时探测正常成员，失败计入连续失败次数；
+ * 未创建或已空闲收缩的数据源组不探测，避免探测连接使收缩的连接池重新扩张
+ *
+ * @since 2022-4-22
+ */
+@Log4j2
+public class HealthCheckMonitor implements Runnable {
+    private final Supplier<Collection<DataSourceGroup>> groupSupplier;
+
+    private final DynamicSourceProperties dynamicSourceProperties;
+
+    private final boolean activeCheck;
+
+    private final MemberProbes memberProbes;
+
+    /**
+     * 构造器
+     *
+     * @param groupSupplier 当前生效的数据源组
+     * @param dynamicSourceProperties 配置属性
+     * @param activeCheck 是否主动探测正常成员
+     * @param probeExecutor 探测线程池
+     */
+    public HealthCheckMonitor(Supplier<Collection<DataSourceGroup>> groupSupplier,
+        DynamicSourceProperties dynamicSourceProperties, boolean activeCheck, ExecutorService probeExecutor) {
+        this.groupSupplier = groupSupplier;
+        this.dynamicSourceProperties = dynamicSourceProperties;
+        this.activeCheck = activeCheck;
+        this.memberProbes = new MemberProbes(probeExecutor);
+    }
+
+    @Override
+    public void run() {
+        try {
+            Map<SnapshotDataSource, DataSourceGroup> owners = new IdentityHashMap<>();
+            for (DataSourceGroup group : groupSupplier.get()) {
+                if (!group.isMaterialized() || group.isShrunk()) {
+                    continue;
+                }
+                collect(group, group.getMasterGroup(), owners);
+                collect(group, group.getSlaveGroup(), owners);
+            }
+            if (owners.isEmpty()) {
+                return;
+            }
+            long timeoutMillis = Math.max(dynamicSourceProperties.getHealthCheckTimeout(), 1) * 1000L;
+            Map<SnapshotDataSource, Boolean> results = memberProbes.probe(owners.keySet(), this::probe, timeoutMillis);
+            Set<DataSourceGroup> changed = Collections.newSetFromMap(new IdentityHashMap<>());
+            // 未完成探测的成员按失败处理，避免停留在半开状态
+            owners.forEach((member, group) -> {
+                if (apply(group.getGroupName(), member, Boolean.TRUE.equals(results.get(member)))) {
+                    changed.add(group);
+                }
+            });
+            changed.forEach(DataSourceGroup::refreshMembers);
+        } catch (RuntimeException e) {
+            // 避免异常终止周期任务
+            log.error("Data source health check failed", e);
+        }
+    }
+
+    private void collect(DataSourceGroup group, List<SnapshotDataSource> members,
+        Map<SnapshotDataSource, DataSourceGroup> owners) {
+        if (CollectionUtils.isEmpty(members)) {
+            return;
+        }
+        for (SnapshotDataSource member : members) {
+            // 上一次探测未结束的成员本轮跳过，不进入半开状态
+            if (member.isClosed() || member.getSource() == null || memberProbes.isInFlight(member)) {
+                continue;
+            }
+            CircuitBreaker circuitBreaker = member.getCircuitBreaker();
+            if (circuitBreaker.tryHalfOpen(dynamicSourceProperties.getCircuitOpenDuration())
+                || activeCheck && circuitBreaker.isSelectable()) {
+                owners.put(member, group);
+            }
+        }
+    }
+
+    private boolean apply(String groupName, SnapshotDataSource member, boolean healthy) {
+        CircuitBreaker circuitBreaker = member.getCircuitBreaker();
+        if (circuitBreaker.getState() == CircuitBreaker.State.HALF_OPEN) {
+            boolean changed = healthy ? circuitBreaker.close() : circuitBreaker.reopen();
+            if (healthy && changed) {
+                log.warn("Data source {} in group {} restored to routing", getUri(member), groupName);
+            }
+            return changed;
+        }
+        if (healthy) {
+            circuitBreaker.recordSuccess();
+            return false;
+        }
+        if (circuitBreaker.recordFailure(dynamicSourceProperties.getCircuitFailureThreshold())) {
+            log.warn("Data source {} in group {} removed from routing after {} consecutive failures",
+                getUri(member), groupName, circuitBreaker.getConsecutiveFailures());
+            return true;
+        }
+        return false;
+    }
+
+    private Boolean probe(SnapshotDataSource member) {
+        try (Connection connection = member.getSource().getConnection()) {
+            return connection.isValid(Math.max(dynamicSourceProperties.getHealthCheckTimeout(), 1));
+        } catch (SQLException | RuntimeException e) {
+            log.debug("Health check of {} failed", getUri(member), e);
+            return false;
+        }
+    }
+
+    private static String getUri(SnapshotDataSource member) {
+        return StringUtil.getUri(member.getProperty() != null ? member.getProperty().getUrl() : "");
+    }
+}
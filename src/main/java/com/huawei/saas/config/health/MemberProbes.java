@@ -0,0 +1,110 @@
+/*
+ * Copyright 2022. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.huawei.saas.config.health;
+
+import com.huawei.saas.config.dynamicdatasource.SnapshotDataSource;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+/**
+ * 数据源成员并行探测，每个成员一个探测任务，整体等待不超过探测时限，超时的探测被中断；
+ * 上一次探测尚未结束的成员本轮跳过，不可达的成员不会阻塞其他成员的探测，也不会累积探测线程
+ *
+ * @since 2022-4-22
+ */
+final class MemberProbes {
+    private final ExecutorService executor;
+
+    private final Map<SnapshotDataSource, Future<?>> inFlight = Collections.synchronizedMap(new IdentityHashMap<>());
+
+    /**
+     * 构造器
+     *
+     * @param executor 探测线程池
+     */
+    MemberProbes(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * 成员的上一次探测是否尚未结束
+     *
+     * @param member 数据源
+     * @return 判断结果
+     */
+    boolean isInFlight(SnapshotDataSource member) {
+        Future<?> future = inFlight.get(member);
+        return future != null && !future.isDone();
+    }
+
+    /**
+     * 并行探测
+     *
+     * @param members 待探测的成员
+     * @param task 探测逻辑，异常需自行处理
+     * @param timeoutMillis 探测时限，毫秒
+     * @param <T> 探测结果
+     * @return 探测结果，超时或执行失败的成员结果为空，上一次探测尚未结束的成员不包含在内
+     */
+    <T> Map<SnapshotDataSource, T> probe(Collection<SnapshotDataSource> members,
+        Function<SnapshotDataSource, T> task, long timeoutMillis) {
+        synchronized (inFlight) {
+            inFlight.values().removeIf(Future::isDone);
+        }
+        Map<SnapshotDataSource, Future<T>> futures = new IdentityHashMap<>(members.size());
+        for (SnapshotDataSource member : members) {
+            if (isInFlight(member)) {
+                continue;
+            }
+            try {
+                Future<T> future = executor.submit(() -> task.apply(member));
+                inFlight.put(member, future);
+                futures.put(member, future);
+            } catch (RejectedExecutionException e) {
+                // 探测线程池已关闭
+                break;
+            }
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        Map<SnapshotDataSource, T> results = new IdentityHashMap<>(futures.size());
+        for (Map.Entry<SnapshotDataSource, Future<T>> entry : futures.entrySet()) {
+            Future<T> future = entry.getValue();
+            T result = null;
+            try {
+                result = future.get(Math.max(deadline - System.nanoTime(), 0L), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                future.cancel(true);
+            } catch (ExecutionException e) {
+                result = null;
+            } catch (InterruptedException e) {
+                future.cancel(true);
+                Thread.currentThread().interrupt();
+            }
+            results.put(entry.getKey(), result);
+        }
+        return results;
+    }
+}
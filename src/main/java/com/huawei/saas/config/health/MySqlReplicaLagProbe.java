@@ -0,0 +1,55 @@
+/*
+ * Copyright 2022. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.huawei.saas.config.health;
+
+import org.apache.commons.lang.StringUtils;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * mysql复制延迟探测，读取SHOW SLAVE STATUS中的Seconds_Behind_Master
+ *
+ * @since 2022-4-22
+ */
+public class MySqlReplicaLagProbe implements ReplicaLagProbe {
+    private static final String LAG_SQL = "SHOW SLAVE STATUS";
+
+    private static final String LAG_COLUMN = "Seconds_Behind_Master";
+
+    @Override
+    public boolean supports(String url) {
+        return StringUtils.startsWithIgnoreCase(url, "jdbc:mysql:")
+            || StringUtils.startsWithIgnoreCase(url, "jdbc:mariadb:");
+    }
+
+    @Override
+    public long getLagMillis(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+            ResultSet resultSet = statement.executeQuery(LAG_SQL)) {
+            if (!resultSet.next()) {
+                // 未配置复制，视为无延迟
+                return 0L;
+            }
+            long seconds = resultSet.getLong(LAG_COLUMN);
+            return resultSet.wasNull() ? Long.MAX_VALUE : TimeUnit.SECONDS.toMillis(seconds);
+        }
+    }
+}
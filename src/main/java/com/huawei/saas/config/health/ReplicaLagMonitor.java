@@ -0,0 +1,156 @@
+/*
+ * Copyright 2022. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.huawei.saas.config.health;
+
+import com.huawei.saas.config.dynamicdatasource.DataSourceGroup;
+import com.huawei.saas.config.dynamicdatasource.SnapshotDataSource;
+import com.huawei.saas.properties.DynamicSourceProperties;
+import com.huawei.saas.properties.MasterSlaveProperty;
+import com.huawei.saas.utils.StringUtil;
+
+import lombok.extern.log4j.Log4j2;
+
+import org.springframework.util.CollectionUtils;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Supplier;
+
+/**
+ * 从库复制延迟监控，在共享调度线程中周期执行，各从库的探测在探测线程池中并行进行，整体不超过health-check-timeout
+ * 延迟超过组配置的max-slave-lag的从库被标记后，数据源组重建可用成员快照将其排除，追上后重新加入；
+ * 请求路径只读取重建后的快照；未创建或已空闲收缩的数据源组不探测，保持原状态
+ *
+ * @since 2022-4-22
+ */
+@Log4j2
+public class ReplicaLagMonitor implements Runnable {
+    private final Supplier<Collection<DataSourceGroup>> groupSupplier;
+
+    private final DynamicSourceProperties dynamicSourceProperties;
+
+    private final List<ReplicaLagProbe> probes;
+
+    private final MemberProbes memberProbes;
+
+    /**
+     * 构造器
+     *
+     * @param groupSupplier 当前生效的数据源组
+     * @param dynamicSourceProperties 配置属性
+     * @param probes 延迟探测实现
+     * @param probeExecutor 探测线程池
+     */
+    public ReplicaLagMonitor(Supplier<Collection<DataSourceGroup>> groupSupplier,
+        DynamicSourceProperties dynamicSourceProperties, List<ReplicaLagProbe> probes,
+        ExecutorService probeExecutor) {
+        this.groupSupplier = groupSupplier;
+        this.dynamicSourceProperties = dynamicSourceProperties;
+        this.probes = probes;
+        this.memberProbes = new MemberProbes(probeExecutor);
+    }
+
+    @Override
+    public void run() {
+        try {
+            Map<String, MasterSlaveProperty> configs = dynamicSourceProperties.getDataSourceMap();
+            Map<SnapshotDataSource, DataSourceGroup> owners = new IdentityHashMap<>();
+            Map<SnapshotDataSource, Long> maxLags = new IdentityHashMap<>();
+            Set<DataSourceGroup> changed = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (DataSourceGroup group : groupSupplier.get()) {
+                List<SnapshotDataSource> slaves = group.getSlaveGroup();
+                if (!group.isMaterialized() || group.isShrunk() || CollectionUtils.isEmpty(slaves)) {
+                    continue;
+                }
+                MasterSlaveProperty config = configs != null ? configs.get(group.getGroupName()) : null;
+                long maxLag = config != null ? config.getMaxSlaveLag() : 0L;
+                for (SnapshotDataSource slave : slaves) {
+                    if (maxLag <= 0 || slave.isClosed() || slave.getProperty() == null
+                        || findProbe(slave.getProperty().getUrl()) == null) {
+                        // 未配置延迟阈值或无法探测的从库恢复路由
+                        if (update(group.getGroupName(), slave, false)) {
+                            changed.add(group);
+                        }
+                    } else if (!memberProbes.isInFlight(slave)) {
+                        owners.put(slave, group);
+                        maxLags.put(slave, maxLag);
+                    }
+                }
+            }
+            if (!owners.isEmpty()) {
+                long timeoutMillis = Math.max(dynamicSourceProperties.getHealthCheckTimeout(), 1) * 1000L;
+                Map<SnapshotDataSource, Long> lags = memberProbes.probe(owners.keySet(), this::probe, timeoutMillis);
+                owners.forEach((slave, group) -> {
+                    Long lag = lags.get(slave);
+                    if (lag == null) {
+                        // 探测失败或超时时保持原状态，连接失败由健康检查处理
+                        log.warn("Failed to probe replica lag of {} in group {}", getUri(slave), group.getGroupName());
+                        return;
+                    }
+                    slave.setReplicaLag(lag);
+                    if (update(group.getGroupName(), slave, lag > maxLags.get(slave))) {
+                        changed.add(group);
+                    }
+                });
+            }
+            changed.forEach(DataSourceGroup::refreshMembers);
+        } catch (RuntimeException e) {
+            // 避免异常终止周期任务
+            log.error("Replica lag check failed", e);
+        }
+    }
+
+    private Long probe(SnapshotDataSource slave) {
+        ReplicaLagProbe probe = findProbe(slave.getProperty().getUrl());
+        try (Connection connection = slave.getSource().getConnection()) {
+            return probe.getLagMillis(connection);
+        } catch (SQLException | RuntimeException e) {
+            log.debug("Replica lag probe of {} failed", getUri(slave), e);
+            return null;
+        }
+    }
+
+    private boolean update(String groupName, SnapshotDataSource slave, boolean lagging) {
+        if (lagging == slave.isLagging()) {
+            return false;
+        }
+        slave.setLagging(lagging);
+        log.warn("Slave {} in group {} {} routing, replica lag {} ms", getUri(slave), groupName,
+            lagging ? "removed from" : "restored to", slave.getReplicaLag());
+        return true;
+    }
+
+    private ReplicaLagProbe findProbe(String url) {
+        for (ReplicaLagProbe probe : probes) {
+            if (probe.supports(url)) {
+                return probe;
+            }
+        }
+        return null;
+    }
+
+    private static String getUri(SnapshotDataSource slave) {
+        return StringUtil.getUri(slave.getProperty() != null ? slave.getProperty().getUrl() : "");
+    }
+}
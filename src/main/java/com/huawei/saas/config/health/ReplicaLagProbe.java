@@ -0,0 +1,44 @@
+/*
+ * Copyright 2022. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.huawei.saas.config.health;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * 从库复制延迟探测，按数据库类型扩展，需在META-INF/spring.factories中注册
+ *
+ * @since 2022-4-22
+ */
+public interface ReplicaLagProbe {
+    /**
+     * 是否支持该数据库
+     *
+     * @param url 连接地址
+     * @return 判断结果
+     */
+    boolean supports(String url);
+
+    /**
+     * 查询复制延迟
+     *
+     * @param connection 从库连接
+     * @return 延迟毫秒数，复制中断时返回Long.MAX_VALUE
+     * @throws SQLException 查询异常
+     */
+    long getLagMillis(Connection connection) throws SQLException;
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2022. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.huawei.saas.config.metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * 高频key统计，用于限制指标标签的数量
+ * 使用count-min sketch估算每个key的次数，只保留估算次数最高的K个key，其余归入 {@link #OTHER}；
+ * sketch大小固定，内存占用与key的数量无关，估算值只会偏大。
+ * 前K个key各自关联一个值（如指标），值的创建与移除都在晋升锁内完成；前K个key的计数使用LongAdder，不再竞争sketch
+ *
+ * @param <V> key关联的值
+ * @since 2022-4-22
+ */
+public final class HeavyHitters<V> {
+    /**
+     * 未进入前K的key统一使用的标签值
+     */
+    public static final String OTHER = "other";
+
+    private static final int DEPTH = 4;
+
+    private static final int[] SEEDS = {0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F};
+
+    private final AtomicLongArray sketch;
+
+    private final int width;
+
+    private final int mask;
+
+    private final int capacity;
+
+    private final Map<String, Hitter<V>> top = new ConcurrentHashMap<>(16);
+
+    private final Function<String, V> valueFactory;
+
+    private final Consumer<V> evictionListener;
+
+    private final V other;
+
+    /**
+     * 进入前K需要超过的估算次数，前K未满时为0
+     */
+    private volatile long threshold;
+
+    /**
+     * 构造器
+     *
+     * @param capacity 保留的key数量
+     * @param width sketch每行的宽度，向上取整为2的幂
+     * @param valueFactory key进入前K时创建关联的值，{@link #OTHER}的值在构造时创建
+     * @param evictionListener key被移出前K时回调其关联的值
+     */
+    public HeavyHitters(int capacity, int width, Function<String, V> valueFactory, Consumer<V> evictionListener) {
+        this.capacity = Math.max(capacity, 0);
+        this.width = Integer.highestOneBit(Math.min(Math.max(width, 16), 1 << 20) * 2 - 1);
+        this.mask = this.width - 1;
+        this.sketch = new AtomicLongArray(this.width * DEPTH);
+        this.valueFactory = valueFactory;
+        this.evictionListener = evictionListener;
+        this.other = valueFactory.apply(OTHER);
+    }
+
+    /**
+     * 记录一次出现
+     *
+     * @param key key
+     * @return key在前K时为其关联的值，否则为 {@link #OTHER}关联的值
+     */
+    public V offer(String key) {
+        if (key == null || capacity == 0) {
+            return other;
+        }
+        Hitter<V> hitter = top.get(key);
+        if (hitter != null) {
+            hitter.hits.increment();
+            return hitter.value;
+        }
+        long estimate = increment(key, 1L);
+        if (estimate > threshold || top.size() < capacity) {
+            V value = promote(key, estimate);
+            if (value != null) {
+                return value;
+            }
+        }
+        return other;
+    }
+
+    /**
+     * key的估算次数
+     *
+     * @param key key
+     * @return 估算次数
+     */
+    public long estimate(String key) {
+        Hitter<V> hitter = top.get(key);
+        if (hitter != null) {
+            return hitter.estimate();
+        }
+        int hash = key.hashCode();
+        long min = Long.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            min = Math.min(min, sketch.get(row * width + (mix(hash ^ SEEDS[row]) & mask)));
+        }
+        return min;
+    }
+
+    private long increment(String key, long delta) {
+        int hash = key.hashCode();
+        long min = Long.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            min = Math.min(min, sketch.addAndGet(row * width + (mix(hash ^ SEEDS[row]) & mask), delta));
+        }
+        return min;
+    }
+
+    private synchronized V promote(String key, long estimate) {
+        Hitter<V> current = top.get(key);
+        if (current != null) {
+            current.hits.increment();
+            return current.value;
+        }
+        if (top.size() < capacity) {
+            V value = valueFactory.apply(key);
+            top.put(key, new Hitter<>(value, estimate));
+            return value;
+        }
+        String weakest = null;
+        long weakestEstimate = Long.MAX_VALUE;
+        for (Map.Entry<String, Hitter<V>> candidate : top.entrySet()) {
+            long candidateEstimate = candidate.getValue().estimate();
+            if (candidateEstimate < weakestEstimate) {
+                weakest = candidate.getKey();
+                weakestEstimate = candidateEstimate;
+            }
+        }
+        if (weakest == null || estimate <= weakestEstimate) {
+            threshold = weakestEstimate;
+            return null;
+        }
+        Hitter<V> evicted = top.remove(weakest);
+        // 在前K期间的计数补回sketch，再次晋升时估算值连续
+        increment(weakest, evicted.hits.sum());
+        if (evictionListener != null) {
+            evictionListener.accept(evicted.value);
+        }
+        V value = valueFactory.apply(key);
+        top.put(key, new Hitter<>(value, estimate));
+        threshold = Math.min(weakestEstimate, estimate);
+        return value;
+    }
+
+    private static int mix(int value) {
+        int hash = value;
+        hash ^= hash >>> 16;
+        hash *= 0x85EBCA6B;
+        hash ^= hash >>> 13;
+        hash *= 0xC2B2AE35;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+
+    /**
+     * 前K中的key，晋升时的估算次数加上此后的计数
+     */
+    private static final class Hitter<V> {
+        private final V value;
+
+        private final long base;
+
+        private final LongAdder hits = new LongAdder();
+
+        private Hitter(V value, long base) {
+            this.value = value;
+            this.base = base;
+        }
+
+        private long estimate() {
+            return base + hits.sum();
+        }
+    }
+}
@@ -0,0 +1,261 @@
+/*
+ * Copyright 2022. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.huawei.saas.config.metrics;
+
+import com.huawei.saas.config.dynamicdatasource.SnapshotDataSource;
+import com.huawei.saas.dbpool.PoolStatistics;
+import com.huawei.saas.utils.StringUtil;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToIntFunction;
+
+/**
+ * 基于micrometer的路由指标
+ * 数据源组、数据源的标签数量由配置决定；租户标签只保留获取连接次数最多的前K个租户，其余归入other。
+ * 数据源的指标在首次记录时创建并保存在数据源上，记录时不再拼接标签或查找指标；数据源移出数据源组时删除其指标
+ *
+ * @since 2022-4-22
+ */
+public class MicrometerRoutingMetrics implements RoutingMetrics, MeterBinder {
+    private static final String PREFIX = "tenant.router.";
+
+    private static final String TAG_GROUP = "group";
+
+    private static final String TAG_MEMBER = "member";
+
+    private static final String TAG_ROLE = "role";
+
+    // 已删除指标的数据源，此后的记录直接忽略
+    private static final Object DETACHED = new Object();
+
+    private final int topTenants;
+
+    private final ConcurrentHashMap<String, Timer> routingTimers = new ConcurrentHashMap<>(16);
+
+    private final ConcurrentHashMap<String, Counter> failureCounters = new ConcurrentHashMap<>(16);
+
+    // 相同组、地址、角色的数据源共用一组指标，连接池替换时新旧数据源同时存在，按引用数删除
+    private final Map<String, MemberMeters> memberMeters = new HashMap<>(16);
+
+    private volatile MeterRegistry registry;
+
+    private volatile Timer refreshTimer;
+
+    private volatile HeavyHitters<Counter> tenantHitters;
+
+    /**
+     * 构造器
+     *
+     * @param topTenants 保留租户标签的数量
+     */
+    public MicrometerRoutingMetrics(int topTenants) {
+        this.topTenants = topTenants;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry meterRegistry) {
+        this.refreshTimer = Timer.builder(PREFIX + "refresh")
+            .description("Time spent applying a data source configuration refresh")
+            .register(meterRegistry);
+        // 租户指标的注册与删除都在晋升锁内完成，被移出前K的租户不会被重新注册
+        this.tenantHitters = new HeavyHitters<>(topTenants, 4096,
+            tenant -> Counter.builder(PREFIX + "tenant.connections")
+                .description("Connection requests per tenant, tenants outside the top K are counted as other")
+                .tag("tenant", tenant)
+                .register(meterRegistry), meterRegistry::remove);
+        this.registry = meterRegistry;
+    }
+
+    @Override
+    public void recordRouting(String groupName, long nanos) {
+        MeterRegistry current = registry;
+        if (current == null) {
+            return;
+        }
+        Timer timer = routingTimers.get(groupName);
+        if (timer == null) {
+            timer = routingTimers.computeIfAbsent(groupName, key -> Timer.builder(PREFIX + "routing")
+                .description("Time spent routing a tenant to a data source")
+                .tag(TAG_GROUP, key)
+                .register(current));
+        }
+        timer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void recordAcquire(String groupName, SnapshotDataSource dataSource, long nanos, boolean success) {
+        Object handle = dataSource.getMetricsHandle();
+        if (handle == null) {
+            MeterRegistry current = registry;
+            if (current == null) {
+                return;
+            }
+            handle = attach(current, groupName, dataSource);
+        }
+        if (handle instanceof MemberMeters) {
+            MemberMeters meters = (MemberMeters) handle;
+            (success ? meters.success : meters.failure).record(nanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public void removeDataSource(String groupName, SnapshotDataSource dataSource) {
+        MeterRegistry current = registry;
+        synchronized (memberMeters) {
+            Object handle = dataSource.getMetricsHandle();
+            dataSource.setMetricsHandle(DETACHED);
+            if (!(handle instanceof MemberMeters)) {
+                return;
+            }
+            MemberMeters meters = (MemberMeters) handle;
+            if (--meters.references > 0 || current == null) {
+                return;
+            }
+            memberMeters.remove(meters.key, meters);
+            meters.meters.forEach(current::remove);
+        }
+    }
+
+    @Override
+    public void recordTenant(String tenant) {
+        HeavyHitters<Counter> current = tenantHitters;
+        if (current != null) {
+            current.offer(tenant).increment();
+        }
+    }
+
+    @Override
+    public void recordRefresh(long nanos) {
+        Timer current = refreshTimer;
+        if (current != null) {
+            current.record(nanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public void recordFailure(String cause) {
+        MeterRegistry current = registry;
+        if (current == null) {
+            return;
+        }
+        Counter counter = failureCounters.get(cause);
+        if (counter == null) {
+            counter = failureCounters.computeIfAbsent(cause, key -> Counter.builder(PREFIX + "routing.failures")
+                .description("Routing and connection acquisition failures by cause")
+                .tag("cause", key)
+                .register(current));
+        }
+        counter.increment();
+    }
+
+    /**
+     * 创建数据源的指标并保存在数据源上，每个数据源只执行一次
+     *
+     * @param current 指标注册表
+     * @param groupName 数据源组
+     * @param dataSource 数据源
+     * @return 指标句柄
+     */
+    private Object attach(MeterRegistry current, String groupName, SnapshotDataSource dataSource) {
+        synchronized (memberMeters) {
+            Object handle = dataSource.getMetricsHandle();
+            if (handle != null) {
+                return handle;
+            }
+            String member = dataSource.getProperty() != null
+                ? StringUtil.getUri(dataSource.getProperty().getUrl())
+                : "";
+            String role = dataSource.getRole() != null ? dataSource.getRole() : "";
+            String key = groupName + '|' + member + '|' + role;
+            MemberMeters meters = memberMeters.computeIfAbsent(key,
+                item -> new MemberMeters(current, item, Tags.of(TAG_GROUP, groupName, TAG_MEMBER, member, TAG_ROLE,
+                    role)));
+            meters.references++;
+            if (!dataSource.isDraining()) {
+                meters.target = new WeakReference<>(dataSource);
+            }
+            dataSource.setMetricsHandle(meters);
+            return meters;
+        }
+    }
+
+    /**
+     * 一个数据源的指标，连接池状态弱引用最近创建指标的数据源，连接池替换后跟随新的数据源
+     */
+    private static final class MemberMeters {
+        private final String key;
+
+        private final Timer success;
+
+        private final Timer failure;
+
+        private final List<Meter> meters = new ArrayList<>(5);
+
+        private volatile WeakReference<SnapshotDataSource> target = new WeakReference<>(null);
+
+        private int references;
+
+        private MemberMeters(MeterRegistry registry, String key, Tags tags) {
+            this.key = key;
+            this.success = acquireTimer(registry, tags, "success");
+            this.failure = acquireTimer(registry, tags, "failure");
+            meters.add(success);
+            meters.add(failure);
+            register(registry, tags, "active", "Active connections", PoolStatistics::getActive);
+            register(registry, tags, "idle", "Idle connections", PoolStatistics::getIdle);
+            register(registry, tags, "pending", "Threads waiting for a connection", PoolStatistics::getPending);
+        }
+
+        private static Timer acquireTimer(MeterRegistry registry, Tags tags, String outcome) {
+            return Timer.builder(PREFIX + "connection.acquire")
+                .description("Time spent acquiring a connection from a data source")
+                .tags(tags.and("outcome", outcome))
+                .register(registry);
+        }
+
+        private void register(MeterRegistry registry, Tags tags, String name, String description,
+            ToIntFunction<PoolStatistics> value) {
+            meters.add(Gauge.builder(PREFIX + "pool." + name, this, gauges -> gauges.read(value))
+                .description(description)
+                .tags(tags)
+                .register(registry));
+        }
+
+        private double read(ToIntFunction<PoolStatistics> value) {
+            SnapshotDataSource dataSource = target.get();
+            if (dataSource == null || dataSource.isClosed()) {
+                return Double.NaN;
+            }
+            PoolStatistics statistics = dataSource.getPoolStatistics();
+            return statistics.isKnown() ? value.applyAsInt(statistics) : Double.NaN;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2022. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.huawei.saas.config.metrics;
+
+import com.huawei.saas.config.dynamicdatasource.SnapshotDataSource;
+
+/**
+ * 路由指标记录，默认不记录，classpath中存在micrometer时使用 {@link MicrometerRoutingMetrics}
+ *
+ * @since 2022-4-22
+ */
+public interface RoutingMetrics {
+    /**
+     * 不记录
+     */
+    RoutingMetrics NOOP = new RoutingMetrics() {
+    };
+
+    /**
+     * 失败原因：租户未绑定数据源组
+     */
+    String CAUSE_UNBOUND = "unbound";
+
+    /**
+     * 失败原因：数据源组没有可用成员
+     */
+    String CAUSE_NO_MEMBER = "no_member";
+
+    /**
+     * 失败原因：超出获取连接的频率限制
+     */
+    String CAUSE_RATE_LIMITED = "rate_limited";
+
+    /**
+     * 失败原因：租户连接数达到上限
+     */
+    String CAUSE_BULKHEAD = "bulkhead";
+
+    /**
+     * 失败原因：优先级准入等待超时
+     */
+    String CAUSE_ADMISSION = "admission_timeout";
+
+    /**
+     * 失败原因：连接池获取连接失败
+     */
+    String CAUSE_ACQUIRE = "acquire_failed";
+
+    /**
+     * 失败原因：切换schema失败
+     */
+    String CAUSE_SCHEMA = "schema_switch";
+
+    /**
+     * 记录一次路由决策，从解析租户到选出数据源
+     *
+     * @param groupName 数据源组
+     * @param nanos 耗时，纳秒
+     */
+    default void recordRouting(String groupName, long nanos) {
+    }
+
+    /**
+     * 记录一次从连接池获取连接
+     *
+     * @param groupName 数据源组
+     * @param dataSource 数据源
+     * @param nanos 耗时，纳秒
+     * @param success 是否成功
+     */
+    default void recordAcquire(String groupName, SnapshotDataSource dataSource, long nanos, boolean success) {
+    }
+
+    /**
+     * 数据源已移出数据源组，删除其指标
+     *
+     * @param groupName 数据源组
+     * @param dataSource 数据源
+     */
+    default void removeDataSource(String groupName, SnapshotDataSource dataSource) {
+    }
+
+    /**
+     * 记录租户获取一次连接
+     *
+     * @param tenant 租户标识
+     */
+    default void recordTenant(String tenant) {
+    }
+
+    /**
+     * 记录一次配置刷新
+     *
+     * @param nanos 耗时，纳秒
+     */
+    default void recordRefresh(long nanos) {
+    }
+
+    /**
+     * 记录一次路由或获取连接失败
+     *
+     * @param cause 失败原因
+     */
+    default void recordFailure(String cause) {
+    }
+}
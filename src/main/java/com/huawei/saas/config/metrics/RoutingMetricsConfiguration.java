@@ -0,0 +1,50 @@
+/*
+ * Copyright 2022. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.huawei.saas.config.metrics;
+
+import com.huawei.saas.properties.DynamicSourceProperties;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 可选的micrometer集成，classpath中存在micrometer时生效，指标注册到应用的MeterRegistry
+ *
+ * @since 2022-4-22
+ */
+@Configuration
+@ConditionalOnClass(MeterRegistry.class)
+@ConditionalOnProperty(prefix = "spring.datasource.dynamic", name = "metrics-enable", havingValue = "true",
+    matchIfMissing = true)
+public class RoutingMetricsConfiguration {
+    /**
+     * 路由指标
+     *
+     * @param property 动态数据源配置
+     * @return 路由指标
+     */
+    @Bean
+    @ConditionalOnMissingBean(RoutingMetrics.class)
+    public MicrometerRoutingMetrics routingMetrics(DynamicSourceProperties property) {
+        return new MicrometerRoutingMetrics(property.getMetricsTopTenants());
+    }
+}
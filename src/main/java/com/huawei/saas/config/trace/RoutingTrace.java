@@ -0,0 +1,71 @@
+/*
+ * Copyright 2022. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.huawei.saas.config.trace;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * 一次路由决策
+ *
+ * @since 2022-4-22
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public final class RoutingTrace {
+    /**
+     * 记录序号，递增
+     */
+    private final long sequence;
+
+    /**
+     * 记录时间，毫秒
+     */
+    private final long timestamp;
+
+    /**
+     * 租户标识
+     */
+    private final String tenant;
+
+    /**
+     * 数据源组
+     */
+    private final String group;
+
+    /**
+     * 选中的数据源
+     */
+    private final String member;
+
+    /**
+     * 主从角色
+     */
+    private final String role;
+
+    /**
+     * 切换的schema，未开启schema隔离时为空
+     */
+    private final String schema;
+
+    /**
+     * 路由及获取连接耗时，纳秒
+     */
+    private final long nanos;
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2022. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.huawei.saas.config.trace;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 路由决策记录端点，按需导出缓冲区中的记录，需通过management.endpoints.web.exposure.include开放
+ *
+ * @since 2022-4-22
+ */
+@Endpoint(id = "routingtrace")
+public class RoutingTraceEndpoint {
+    private final RoutingTraceRecorder recorder;
+
+    /**
+     * 构造器
+     *
+     * @param recorder 路由决策记录
+     */
+    public RoutingTraceEndpoint(RoutingTraceRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    /**
+     * 导出记录
+     *
+     * @return 累计记录次数及缓冲区中的记录
+     */
+    @ReadOperation
+    public Map<String, Object> traces() {
+        Map<String, Object> result = new HashMap<>(4);
+        result.put("recorded", recorder.getRecorded());
+        result.put("traces", recorder.snapshot());
+        return result;
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2022. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.huawei.saas.config.trace;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 可选的actuator集成，classpath中存在actuator时注册路由决策记录端点
+ *
+ * @since 2022-4-22
+ */
+@Configuration
+@ConditionalOnClass(Endpoint.class)
+public class RoutingTraceEndpointConfiguration {
+    /**
+     * 路由决策记录端点
+     *
+     * @param recorder 路由决策记录
+     * @return 端点
+     */
+    @Bean
+    @ConditionalOnMissingBean(RoutingTraceEndpoint.class)
+    public RoutingTraceEndpoint routingTraceEndpoint(RoutingTraceRecorder recorder) {
+        return new RoutingTraceEndpoint(recorder);
+    }
+}
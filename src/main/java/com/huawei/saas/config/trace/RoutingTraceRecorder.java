@@ -0,0 +1,111 @@
+/*
+ * Copyright 2022. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.huawei.saas.config.trace;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.DoubleSupplier;
+
+/**
+ * 路由决策记录，固定大小的环形缓冲区，写入时不加锁，写满后覆盖最早的记录
+ * 按采样率记录，采样率小于等于0时不记录也不产生对象
+ *
+ * @since 2022-4-22
+ */
+public class RoutingTraceRecorder {
+    private static final int MAX_CAPACITY = 1 << 20;
+
+    private final AtomicReferenceArray<RoutingTrace> buffer;
+
+    private final int mask;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final DoubleSupplier sampleRate;
+
+    /**
+     * 构造器
+     *
+     * @param capacity 缓冲区大小，向上取整为2的幂
+     * @param sampleRate 采样率，0到1之间，每次记录前读取，修改后立即生效
+     */
+    public RoutingTraceRecorder(int capacity, DoubleSupplier sampleRate) {
+        int size = Integer.highestOneBit(Math.min(Math.max(capacity, 16), MAX_CAPACITY) * 2 - 1);
+        this.buffer = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        this.sampleRate = sampleRate;
+    }
+
+    /**
+     * 本次路由是否需要记录
+     *
+     * @return 判断结果
+     */
+    public boolean shouldSample() {
+        double rate = sampleRate.getAsDouble();
+        return rate >= 1D || (rate > 0D && ThreadLocalRandom.current().nextDouble() < rate);
+    }
+
+    /**
+     * 记录一次路由决策，调用前需通过 {@link #shouldSample()} 判断
+     *
+     * @param tenant 租户标识
+     * @param group 数据源组
+     * @param member 数据源
+     * @param role 主从角色
+     * @param schema schema
+     * @param nanos 耗时，纳秒
+     */
+    public void record(String tenant, String group, String member, String role, String schema, long nanos) {
+        long next = sequence.getAndIncrement();
+        buffer.lazySet((int) (next & mask),
+            new RoutingTrace(next, System.currentTimeMillis(), tenant, group, member, role, schema, nanos));
+    }
+
+    /**
+     * 获取缓冲区中的记录，按记录顺序排列
+     *
+     * @return 记录
+     */
+    public List<RoutingTrace> snapshot() {
+        long end = sequence.get();
+        long start = Math.max(end - buffer.length(), 0L);
+        List<RoutingTrace> traces = new ArrayList<>((int) (end - start));
+        for (int i = 0; i < buffer.length(); i++) {
+            RoutingTrace trace = buffer.get(i);
+            if (trace != null && trace.getSequence() >= start) {
+                traces.add(trace);
+            }
+        }
+        traces.sort(Comparator.comparingLong(RoutingTrace::getSequence));
+        return Collections.unmodifiableList(traces);
+    }
+
+    /**
+     * 累计记录的次数
+     *
+     * @return 次数
+     */
+    public long getRecorded() {
+        return sequence.get();
+    }
+}
@@ -22,7 +22,22 @@ package com.huawei.saas.constants;
  * @since 2022-4-22
  */
 public enum LoadBalanceStrategyEnum {
-    RANDOM("random");
+    RANDOM("random"),
+
+    /**
+     * 平滑加权轮询，按从库weight分配
+     */
+    WEIGHTED_ROUND_ROBIN("weighted-round-robin"),
+
+    /**
+     * 最小负载，随机两选一，按连接池实时负载选取
+     */
+    LEAST_ACTIVE("least-active"),
+
+    /**
+     * 延迟感知，随机两选一，按获取连接与语句执行耗时的指数加权移动平均选取
+     */
+    LEAST_LATENCY("least-latency");
 
     private String code;
 
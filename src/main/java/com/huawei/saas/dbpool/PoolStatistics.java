@@ -0,0 +1,337 @@
+/*
+ * Copyright 2022. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.huawei.saas.dbpool;
+
+import com.alibaba.druid.pool.DruidDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+
+import org.springframework.util.ClassUtils;
+
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+/**
+ * 连接池运行状态，屏蔽hikari、druid等连接池的差异，不支持的连接池各项指标返回-1
+ * 同时提供空闲收缩，用于长时间未使用的连接池释放连接
+ *
+ * @since 2022-4-22
+ */
+public abstract class PoolStatistics {
+    /**
+     * 未知连接池
+     */
+    public static final PoolStatistics UNKNOWN = new PoolStatistics(null) {
+        @Override
+        public int getActive() {
+            return -1;
+        }
+
+        @Override
+        public int getIdle() {
+            return -1;
+        }
+
+        @Override
+        public int getPending() {
+            return -1;
+        }
+
+        @Override
+        public int getMinIdle() {
+            return -1;
+        }
+
+        @Override
+        public int getMaxSize() {
+            return -1;
+        }
+
+        @Override
+        public void setMinIdle(int minIdle) {
+        }
+
+        @Override
+        public void evictIdle() {
+        }
+
+        @Override
+        public String getResetCatalog() {
+            return null;
+        }
+
+        @Override
+        public String getResetSchema() {
+            return null;
+        }
+    };
+
+    private static final boolean HIKARI_PRESENT = ClassUtils.isPresent("com.zaxxer.hikari.HikariDataSource",
+        PoolStatistics.class.getClassLoader());
+
+    private static final boolean DRUID_PRESENT = ClassUtils.isPresent("com.alibaba.druid.pool.DruidDataSource",
+        PoolStatistics.class.getClassLoader());
+
+    private final DataSource dataSource;
+
+    private PoolStatistics(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * 获取数据源对应的连接池状态，数据源被处理器包装时尝试unwrap
+     *
+     * @param dataSource 数据源
+     * @return 连接池状态
+     */
+    public static PoolStatistics of(DataSource dataSource) {
+        if (dataSource == null) {
+            return UNKNOWN;
+        }
+        PoolStatistics statistics = HIKARI_PRESENT ? HikariStatistics.resolve(dataSource) : null;
+        if (statistics == null && DRUID_PRESENT) {
+            statistics = DruidStatistics.resolve(dataSource);
+        }
+        return statistics != null ? statistics : UNKNOWN;
+    }
+
+    /**
+     * 对应的数据源
+     *
+     * @return 数据源
+     */
+    public DataSource getDataSource() {
+        return dataSource;
+    }
+
+    /**
+     * 是否可以获取连接池状态
+     *
+     * @return 判断结果
+     */
+    public boolean isKnown() {
+        return this != UNKNOWN;
+    }
+
+    /**
+     * 使用中的连接数
+     *
+     * @return 连接数
+     */
+    public abstract int getActive();
+
+    /**
+     * 空闲连接数
+     *
+     * @return 连接数
+     */
+    public abstract int getIdle();
+
+    /**
+     * 等待获取连接的线程数
+     *
+     * @return 线程数
+     */
+    public abstract int getPending();
+
+    /**
+     * 配置的最小空闲连接数
+     *
+     * @return 连接数
+     */
+    public abstract int getMinIdle();
+
+    /**
+     * 配置的最大连接数
+     *
+     * @return 连接数
+     */
+    public abstract int getMaxSize();
+
+    /**
+     * 修改最小空闲连接数，运行中生效
+     *
+     * @param minIdle 连接数
+     */
+    public abstract void setMinIdle(int minIdle);
+
+    /**
+     * 立即关闭空闲连接，使用中的连接不受影响
+     */
+    public abstract void evictIdle();
+
+    /**
+     * 连接归还时连接池恢复的catalog
+     *
+     * @return catalog，连接池不恢复catalog时为空
+     */
+    public abstract String getResetCatalog();
+
+    /**
+     * 连接归还时连接池恢复的schema
+     *
+     * @return schema，连接池不恢复schema时为空
+     */
+    public abstract String getResetSchema();
+
+    private static <T> T unwrap(DataSource dataSource, Class<T> type) {
+        if (type.isInstance(dataSource)) {
+            return type.cast(dataSource);
+        }
+        try {
+            return dataSource.isWrapperFor(type) ? dataSource.unwrap(type) : null;
+        } catch (SQLException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * hikari连接池状态
+     */
+    private static final class HikariStatistics extends PoolStatistics {
+        private final HikariDataSource pool;
+
+        private HikariStatistics(DataSource dataSource, HikariDataSource pool) {
+            super(dataSource);
+            this.pool = pool;
+        }
+
+        private static PoolStatistics resolve(DataSource dataSource) {
+            HikariDataSource pool = unwrap(dataSource, HikariDataSource.class);
+            return pool != null ? new HikariStatistics(dataSource, pool) : null;
+        }
+
+        @Override
+        public int getActive() {
+            HikariPoolMXBean bean = pool.getHikariPoolMXBean();
+            return bean != null ? bean.getActiveConnections() : 0;
+        }
+
+        @Override
+        public int getIdle() {
+            HikariPoolMXBean bean = pool.getHikariPoolMXBean();
+            return bean != null ? bean.getIdleConnections() : 0;
+        }
+
+        @Override
+        public int getPending() {
+            HikariPoolMXBean bean = pool.getHikariPoolMXBean();
+            return bean != null ? bean.getThreadsAwaitingConnection() : 0;
+        }
+
+        @Override
+        public int getMinIdle() {
+            return pool.getMinimumIdle();
+        }
+
+        @Override
+        public int getMaxSize() {
+            return pool.getMaximumPoolSize();
+        }
+
+        @Override
+        public void setMinIdle(int minIdle) {
+            // 连接池启动后配置被封存，通过MXBean修改
+            pool.getHikariConfigMXBean().setMinimumIdle(minIdle);
+        }
+
+        @Override
+        public void evictIdle() {
+            HikariPoolMXBean bean = pool.getHikariPoolMXBean();
+            if (bean != null) {
+                bean.softEvictConnections();
+            }
+        }
+
+        @Override
+        public String getResetCatalog() {
+            // 配置了catalog时，连接归还时若catalog被修改则恢复为配置值
+            return pool.getCatalog();
+        }
+
+        @Override
+        public String getResetSchema() {
+            return pool.getSchema();
+        }
+    }
+
+    /**
+     * druid连接池状态
+     */
+    private static final class DruidStatistics extends PoolStatistics {
+        private final DruidDataSource pool;
+
+        private DruidStatistics(DataSource dataSource, DruidDataSource pool) {
+            super(dataSource);
+            this.pool = pool;
+        }
+
+        private static PoolStatistics resolve(DataSource dataSource) {
+            DruidDataSource pool = unwrap(dataSource, DruidDataSource.class);
+            return pool != null ? new DruidStatistics(dataSource, pool) : null;
+        }
+
+        @Override
+        public int getActive() {
+            return pool.getActiveCount();
+        }
+
+        @Override
+        public int getIdle() {
+            return pool.getPoolingCount();
+        }
+
+        @Override
+        public int getPending() {
+            // getWaitThreadCount需要加锁，这里读取无锁的计数
+            return pool.getNotEmptyWaitThreadCount();
+        }
+
+        @Override
+        public int getMinIdle() {
+            return pool.getMinIdle();
+        }
+
+        @Override
+        public int getMaxSize() {
+            return pool.getMaxActive();
+        }
+
+        @Override
+        public void setMinIdle(int minIdle) {
+            pool.setMinIdle(minIdle);
+        }
+
+        @Override
+        public void evictIdle() {
+            // 不检查空闲时间，关闭超出最小空闲数的全部空闲连接
+            pool.shrink(false);
+        }
+
+        @Override
+        public String getResetCatalog() {
+            // 归还时不恢复catalog
+            return null;
+        }
+
+        @Override
+        public String getResetSchema() {
+            return null;
+        }
+    }
+}
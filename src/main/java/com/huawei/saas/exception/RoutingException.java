@@ -23,6 +23,11 @@ package com.huawei.saas.exception;
  */
 public class RoutingException extends RuntimeException {
 
+    /**
+     * 错误码：租户或数据源组获取连接的频率超出限制
+     */
+    public static final int RATE_LIMITED = 429;
+
     private static final long serialVersionUID = -8572529625761748960L;
 
     private int code;
@@ -57,4 +62,13 @@ public class RoutingException extends RuntimeException {
     public RoutingException(int code, String message) {
         this(code, message, null);
     }
+
+    /**
+     * 错误码
+     *
+     * @return 错误码，未指定时为0
+     */
+    public int getCode() {
+        return code;
+    }
 }
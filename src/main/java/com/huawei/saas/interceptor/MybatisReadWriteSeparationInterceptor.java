@@ -17,6 +17,8 @@
 package com.huawei.saas.interceptor;
 
 import com.huawei.saas.config.context.TenantContext;
+import com.huawei.saas.config.dynamicdatasource.SnapshotDataSource;
+import com.huawei.saas.config.dynamicdatasource.TenantWriteTracker;
 import com.huawei.saas.constants.Constants;
 
 import org.apache.ibatis.cache.CacheKey;
@@ -30,6 +32,7 @@ import org.apache.ibatis.plugin.Invocation;
 import org.apache.ibatis.plugin.Signature;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
+import org.springframework.beans.factory.annotation.Autowired;
 
 /**
  * mybatis拦截，选主从
@@ -44,6 +47,9 @@ import org.apache.ibatis.session.RowBounds;
     }), @Signature(type = Executor.class, method = "update", args = {MappedStatement.class, Object.class})
 })
 public class MybatisReadWriteSeparationInterceptor implements Interceptor {
+    @Autowired(required = false)
+    private TenantWriteTracker tenantWriteTracker;
+
     @Override
     public Object intercept(Invocation invocation) throws Throwable {
         MappedStatement statement = (MappedStatement) invocation.getArgs()[0];
@@ -55,6 +61,20 @@ public class MybatisReadWriteSeparationInterceptor implements Interceptor {
 
         // 记录本次操作库,用于本次会话的 本次操作以及后续操作的选库参考
         TenantContext.setDbStrategyType(dbStrategy);
-        return invocation.proceed();
+        long start = System.nanoTime();
+        try {
+            Object result = invocation.proceed();
+            // 记录写入时间，粘滞窗口内的后续读请求路由到主库
+            if (Constants.DB_MASTER.equals(dbStrategy) && tenantWriteTracker != null) {
+                tenantWriteTracker.recordWrite(TenantContext.getDomain());
+            }
+            return result;
+        } finally {
+            // 语句耗时计入实际执行的数据源，供延迟感知的负载均衡策略使用
+            SnapshotDataSource dataSource = TenantContext.getRoutedDataSource();
+            if (dataSource != null) {
+                dataSource.getStatistics().recordQuery(System.nanoTime() - start);
+            }
+        }
     }
 }
@@ -16,12 +16,13 @@
 
 package com.huawei.saas.interceptor;
 
+import com.huawei.saas.config.binding.CatalogSchemaSwitcher;
 import com.huawei.saas.config.binding.SchemaBindingStrategy;
+import com.huawei.saas.config.binding.SchemaSession;
+import com.huawei.saas.config.binding.SchemaSwitcher;
 import com.huawei.saas.config.context.TenantContext;
 import com.huawei.saas.exception.RoutingException;
 
-import lombok.extern.log4j.Log4j2;
-
 import org.apache.ibatis.executor.statement.StatementHandler;
 import org.apache.ibatis.plugin.Interceptor;
 import org.apache.ibatis.plugin.Intercepts;
@@ -39,8 +40,9 @@ import java.util.Optional;
  * @since 2022-02-14
  */
 @Intercepts({@Signature(type = StatementHandler.class, method = "prepare", args = {Connection.class, Integer.class})})
-@Log4j2
 public class MybatisSchemaInterceptor implements Interceptor {
+    private static final SchemaSwitcher DEFAULT_SWITCHER = new CatalogSchemaSwitcher();
+
     @Autowired
     private SchemaBindingStrategy schemaBindingStrategy;
 
@@ -60,9 +62,15 @@ public class MybatisSchemaInterceptor implements Interceptor {
             .orElseThrow(() -> new RoutingException(String.format(Locale.ENGLISH,
                 "The schema isolation function is enabled for the data source bound to tenant %s, but no schema is bound",
                 domain)));
-        log.warn("{} select schema {}", domain, catalog);
         Connection conn = (Connection) invocation.getArgs()[0];
-        conn.setCatalog(catalog);
+        if (conn.isWrapperFor(SchemaSession.class)) {
+            // 连接记录了当前schema，未变化时跳过切换
+            conn.unwrap(SchemaSession.class).switchSchema(catalog);
+        } else {
+            Optional.ofNullable(TenantContext.getSchemaSwitcher())
+                .orElse(DEFAULT_SWITCHER)
+                .switchSchema(conn, catalog);
+        }
         return invocation.proceed();
     }
 }
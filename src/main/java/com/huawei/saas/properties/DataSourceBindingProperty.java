@@ -30,4 +30,24 @@ public class DataSourceBindingProperty {
     private String groupName;
 
     private String schema;
+
+    /**
+     * 租户等级，对应 {@link DynamicSourceProperties#getTiers()}
+     */
+    private String tier;
+
+    /**
+     * 租户在数据源组内同时持有的最大连接数，为空时使用租户等级或全局配置，小于等于0时不限制
+     */
+    private Integer maxConnections;
+
+    /**
+     * 租户每秒允许获取的连接数，为空时使用租户等级或全局配置，小于等于0时不限制
+     */
+    private Double connectionRate;
+
+    /**
+     * 租户获取连接允许的突发数，为空时使用租户等级或全局配置
+     */
+    private Integer connectionBurst;
 }
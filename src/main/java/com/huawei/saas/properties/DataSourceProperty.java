@@ -65,6 +65,11 @@ public class DataSourceProperty extends PoolProperties implements Cloneable {
      */
     private String password;
 
+    /**
+     * 负载均衡权重，加权类负载均衡策略使用，小于等于0时不参与选取
+     */
+    private int weight = 1;
+
     /**
      * 是否有效
      *
@@ -64,6 +64,171 @@ public class DynamicSourceProperties extends PoolProperties {
      */
     private Map<String, DataSourceBindingProperty> bindingMap;
 
+    /**
+     * 租户等级配置 key = 等级名称
+     */
+    private Map<String, TenantTierProperty> tiers;
+
+    /**
+     * 后台任务（延迟检测等）共享调度线程数
+     */
+    private int schedulerPoolSize = 2;
+
+    /**
+     * 从库复制延迟检测间隔，毫秒
+     */
+    private long lagCheckInterval = 1000L;
+
+    /**
+     * 租户最近写入时间表的槽位数，用于写后读主库的粘滞窗口
+     */
+    private int stickyMasterSlots = 16384;
+
+    /**
+     * 打开熔断的连续建立连接失败次数，小于等于0时不熔断
+     */
+    private int circuitFailureThreshold = 0;
+
+    /**
+     * 熔断打开时长，毫秒，到期后进行半开探测
+     */
+    private long circuitOpenDuration = 10000L;
+
+    /**
+     * 健康检查间隔，毫秒
+     */
+    private long healthCheckInterval = 5000L;
+
+    /**
+     * 是否主动探测正常成员，关闭时仅对熔断成员做半开探测
+     */
+    private boolean healthCheckActive = false;
+
+    /**
+     * 健康检查连接校验超时，秒
+     */
+    private int healthCheckTimeout = 3;
+
+    /**
+     * 刷新时被替换或移除的连接池排空时限，毫秒，超时后强制关闭
+     */
+    private long poolDrainTimeout = 30000L;
+
+    /**
+     * 并行创建数据源组的最大线程数
+     */
+    private int initParallelism = 8;
+
+    /**
+     * 启动时创建全部数据源组的时限，毫秒，小于等于0时不限制
+     */
+    private long startupTimeout = 0L;
+
+    /**
+     * 启动时存在创建失败或超时的数据源组时是否启动失败，关闭时跳过失败的组降级启动
+     */
+    private boolean startupFailFast = true;
+
+    /**
+     * 是否延迟创建连接池，开启后数据源组在首次被路由到时才创建连接池
+     */
+    private boolean lazyInit = false;
+
+    /**
+     * 数据源组空闲超过该时间后收缩至零个空闲连接，毫秒，小于等于0时不收缩
+     */
+    private long idleShrinkTime = 0L;
+
+    /**
+     * 数据源组空闲超过该时间后关闭连接池，下次使用时重新创建，毫秒，小于等于0时不关闭
+     */
+    private long idleEvictTime = 0L;
+
+    /**
+     * 全局打开的连接池数上限，超出时按LRU关闭最久未使用的数据源组，小于等于0时不限制
+     */
+    private int maxOpenPools = 0;
+
+    /**
+     * 全局连接数上限，超出时按LRU关闭最久未使用的数据源组，小于等于0时不限制
+     */
+    private int maxOpenConnections = 0;
+
+    /**
+     * 空闲回收检查间隔，毫秒
+     */
+    private long evictionInterval = 10000L;
+
+    /**
+     * 是否共用物理连接池，开启后连接目标、账号及连接池配置相同的数据源共用一个连接池
+     */
+    private boolean sharePhysicalPools = false;
+
+    /**
+     * 是否记录物理连接当前的catalog，开启后schema隔离的数据源组在catalog未变化时跳过切换
+     */
+    private boolean catalogTracking = false;
+
+    /**
+     * 是否在每条mybatis语句执行前再次切换schema，获取连接时已切换，仅连接跨租户复用时需要开启
+     */
+    private boolean statementSchemaBinding = false;
+
+    /**
+     * 单个租户在一个数据源组内同时持有的最大连接数，租户及等级未配置时使用，小于等于0时不限制
+     */
+    private int tenantMaxConnections = 0;
+
+    /**
+     * 租户连接数达到上限时的等待时间，毫秒，超时后拒绝，小于等于0时立即拒绝
+     */
+    private long tenantAcquireTimeout = 0L;
+
+    /**
+     * 是否开启按租户等级的优先级准入，连接池繁忙时高优先级租户先获取连接
+     */
+    private boolean priorityAdmission = false;
+
+    /**
+     * 优先级老化周期，毫秒，每等待一个周期优先级提升一级
+     */
+    private long priorityAgingInterval = 100L;
+
+    /**
+     * 优先级准入的最长等待时间，毫秒
+     */
+    private long admissionTimeout = 30000L;
+
+    /**
+     * 单个租户每秒允许获取的连接数，租户及等级未配置时使用，小于等于0时不限制
+     */
+    private double tenantConnectionRate = 0D;
+
+    /**
+     * 单个租户获取连接允许的突发数，小于1时按每秒连接数计算
+     */
+    private int tenantConnectionBurst = 0;
+
+    /**
+     * 租户限流表的槽位数，哈希冲突的租户共享限额
+     */
+    private int rateLimitSlots = 16384;
+
+    /**
+     * 指标中保留租户标签的数量，获取连接次数最多的租户单独统计，其余租户合并为other
+     */
+    private int metricsTopTenants = 100;
+
+    /**
+     * 路由决策记录的采样率，0到1之间，默认0不记录
+     */
+    private double routingTraceSampleRate = 0D;
+
+    /**
+     * 路由决策记录的缓冲区大小，写满后覆盖最早的记录
+     */
+    private int routingTraceSize = 1024;
+
     /**
      * 设置数据源组时，组名填充
      *
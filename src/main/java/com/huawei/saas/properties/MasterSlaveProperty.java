@@ -62,6 +62,26 @@ public class MasterSlaveProperty extends PoolProperties {
      */
     private String loadBalanceStrategy;
 
+    /**
+     * 从库允许的最大复制延迟，毫秒，超出时不参与读请求路由，小于等于0时不检测
+     */
+    private long maxSlaveLag = 0L;
+
+    /**
+     * 写后读主库的粘滞窗口，毫秒，租户写入后窗口内的读请求路由到主库，小于等于0时关闭
+     */
+    private long stickyMasterWindow = 0L;
+
+    /**
+     * 数据源组每秒允许获取的连接数，所有租户合计，小于等于0时不限制
+     */
+    private double connectionRate = 0D;
+
+    /**
+     * 数据源组获取连接允许的突发数，小于1时按每秒连接数计算
+     */
+    private int connectionBurst = 0;
+
     /**
      * 单主库，有需要可以改为多主
      */
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2022. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.huawei.saas.properties;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+/**
+ * 租户等级配置
+ *
+ * @since 2022-4-22
+ */
+@Data
+@Accessors(chain = true)
+public class TenantTierProperty {
+    /**
+     * 该等级的租户在一个数据源组内同时持有的最大连接数，为空时使用全局配置，小于等于0时不限制
+     */
+    private Integer maxConnections;
+
+    /**
+     * 连接池繁忙时的准入优先级，越大越优先，默认0
+     */
+    private int priority = 0;
+
+    /**
+     * 该等级的租户每秒允许获取的连接数，为空时使用全局配置，小于等于0时不限制
+     */
+    private Double connectionRate;
+
+    /**
+     * 该等级的租户获取连接允许的突发数，为空时使用全局配置
+     */
+    private Integer connectionBurst;
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2022. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.huawei.saas.config.dynamicdatasource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.huawei.saas.config.balancestrategy.RandomLoadBalanceStrategy;
+import com.huawei.saas.exception.RoutingException;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * 数据源组选库与延迟创建测试
+ *
+ * @since 2022-4-22
+ */
+class DataSourceGroupTest {
+    private static final int THRESHOLD = 1;
+
+    @Test
+    void openMemberIsNotSelected() {
+        SnapshotDataSource healthy = member();
+        SnapshotDataSource broken = member();
+        DataSourceGroup group = group(healthy, broken);
+
+        broken.getCircuitBreaker().recordFailure(THRESHOLD);
+        group.refreshMembers();
+        for (int i = 0; i < 100; i++) {
+            assertSame(healthy, group.getDataSource(true));
+        }
+    }
+
+    @Test
+    void allMastersOpenFallsBackToLeastRecentlyFailed() throws InterruptedException {
+        SnapshotDataSource first = member();
+        SnapshotDataSource second = member();
+        DataSourceGroup group = group(first, second);
+
+        first.getCircuitBreaker().recordFailure(THRESHOLD);
+        Thread.sleep(5L);
+        second.getCircuitBreaker().recordFailure(THRESHOLD);
+        group.refreshMembers();
+        assertSame(first, group.getDataSource(true));
+
+        // 兜底成员获取连接成功后关闭熔断，重新参与选库
+        first.getCircuitBreaker().close();
+        group.refreshMembers();
+        assertSame(first, group.getDataSource(true));
+    }
+
+    @Test
+    void closedOrDrainingMastersAreNotFallback() {
+        SnapshotDataSource closed = member();
+        SnapshotDataSource draining = member();
+        DataSourceGroup group = group(closed, draining);
+
+        closed.getCircuitBreaker().recordFailure(THRESHOLD);
+        closed.setClosed(true);
+        draining.getCircuitBreaker().recordFailure(THRESHOLD);
+        draining.setDraining(true);
+        group.refreshMembers();
+        assertNull(group.getDataSource(true));
+    }
+
+    @Test
+    void concurrentMaterializeRunsLoaderOnce() throws Exception {
+        DataSourceGroup group = DataSourceGroup.pending("group0", false, new RandomLoadBalanceStrategy());
+        SnapshotDataSource master = member();
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        Consumer<DataSourceGroup> loader = target -> {
+            loads.incrementAndGet();
+            loading.countDown();
+            sleep(50L);
+            target.setMasterGroup(Collections.singletonList(master));
+        };
+
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            Future<?>[] futures = new Future<?>[threads];
+            for (int i = 0; i < threads; i++) {
+                futures[i] = executor.submit(() -> {
+                    start.await();
+                    group.materialize(loader);
+                    // 等待创建的请求返回时成员已就绪
+                    assertSame(master, group.getDataSource(true));
+                    return null;
+                });
+            }
+            start.countDown();
+            assertTrue(loading.await(10, TimeUnit.SECONDS));
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, loads.get());
+
+        group.materialize(loader);
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void failedMaterializeIsNotRetriedImmediately() {
+        DataSourceGroup group = DataSourceGroup.pending("group0", false, new RandomLoadBalanceStrategy());
+        AtomicInteger loads = new AtomicInteger();
+        RoutingException failure = new RoutingException("create pool failed");
+        Consumer<DataSourceGroup> loader = target -> {
+            loads.incrementAndGet();
+            throw failure;
+        };
+
+        assertSame(failure, assertThrows(RoutingException.class, () -> group.materialize(loader)));
+        assertSame(failure, assertThrows(RoutingException.class, () -> group.materialize(loader)));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void dematerializedGroupIsCreatedAgain() {
+        DataSourceGroup group = DataSourceGroup.pending("group0", false, new RandomLoadBalanceStrategy());
+        SnapshotDataSource master = member();
+        AtomicInteger loads = new AtomicInteger();
+        Consumer<DataSourceGroup> loader = target -> {
+            loads.incrementAndGet();
+            target.setMasterGroup(Collections.singletonList(master));
+        };
+        group.materialize(loader);
+
+        List<SnapshotDataSource> removed = group.dematerialize();
+        assertEquals(Collections.singletonList(master), removed);
+        assertNull(group.getDataSource(true));
+
+        group.materialize(loader);
+        assertEquals(2, loads.get());
+        assertSame(master, group.getDataSource(true));
+    }
+
+    @Test
+    void retiredGroupIsNeverCreated() {
+        DataSourceGroup pending = DataSourceGroup.pending("group0", false, new RandomLoadBalanceStrategy());
+        assertTrue(pending.retireIfPending());
+        assertThrows(RoutingException.class, () -> pending.materialize(target -> {
+            throw new AssertionError("retired group must not be created");
+        }));
+
+        SnapshotDataSource master = member();
+        DataSourceGroup materialized = group(master);
+        assertEquals(Collections.singletonList(master), materialized.retire());
+        assertThrows(RoutingException.class, () -> materialized.materialize(target -> {
+            throw new AssertionError("retired group must not be created");
+        }));
+        assertTrue(materialized.dematerialize().isEmpty());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static DataSourceGroup group(SnapshotDataSource... masters) {
+        return new DataSourceGroup("group0", false, new RandomLoadBalanceStrategy(), Arrays.asList(masters),
+            Collections.emptyList());
+    }
+
+    private static SnapshotDataSource member() {
+        return new SnapshotDataSource(null, null, false);
+    }
+}
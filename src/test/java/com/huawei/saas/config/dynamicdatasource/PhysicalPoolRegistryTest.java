@@ -0,0 +1,225 @@
+/*
+ * Copyright 2022. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.huawei.saas.config.dynamicdatasource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.huawei.saas.properties.DataSourceProperty;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.Closeable;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import javax.sql.DataSource;
+
+/**
+ * 物理连接池注册表引用计数测试
+ *
+ * @since 2022-4-22
+ */
+class PhysicalPoolRegistryTest {
+    private static final String KEY = "pool";
+
+    private final PhysicalPoolRegistry registry = new PhysicalPoolRegistry();
+
+    private final AtomicInteger created = new AtomicInteger();
+
+    private final AtomicInteger closed = new AtomicInteger();
+
+    @Test
+    void sameKeySharesOnePoolUntilLastRelease() throws Exception {
+        SharedDataSource first = registry.acquire(KEY, factory());
+        SharedDataSource second = registry.acquire(KEY, factory());
+        assertEquals(1, created.get());
+        assertTrue(first.isShared());
+        assertSame(first.getAdmission(() -> 10), second.getAdmission(() -> 20));
+
+        first.close();
+        assertEquals(0, closed.get());
+        assertFalse(second.isShared());
+
+        second.close();
+        assertEquals(1, closed.get());
+    }
+
+    @Test
+    void repeatedCloseReleasesOneReference() throws Exception {
+        SharedDataSource first = registry.acquire(KEY, factory());
+        SharedDataSource second = registry.acquire(KEY, factory());
+
+        first.close();
+        first.close();
+        assertEquals(0, closed.get());
+
+        second.close();
+        assertEquals(1, closed.get());
+    }
+
+    @Test
+    void acquireAfterLastReleaseCreatesNewPool() throws Exception {
+        SharedDataSource first = registry.acquire(KEY, factory());
+        PriorityAdmission admission = first.getAdmission(() -> 10);
+        first.close();
+
+        SharedDataSource second = registry.acquire(KEY, factory());
+        assertEquals(2, created.get());
+        assertNotSame(admission, second.getAdmission(() -> 10));
+        second.close();
+        assertEquals(2, closed.get());
+    }
+
+    @Test
+    void failedCreationIsNotRegistered() throws Exception {
+        RuntimeException failure = new IllegalStateException("create pool failed");
+        assertSame(failure, assertThrows(IllegalStateException.class, () -> registry.acquire(KEY, () -> {
+            throw failure;
+        })));
+
+        SharedDataSource retried = registry.acquire(KEY, factory());
+        assertEquals(1, created.get());
+        assertFalse(retried.isShared());
+        retried.close();
+        assertEquals(1, closed.get());
+    }
+
+    @Test
+    void concurrentAcquireCreatesOnce() throws Exception {
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        Future<?>[] futures = new Future<?>[threads];
+        try {
+            for (int i = 0; i < threads; i++) {
+                futures[i] = executor.submit(() -> {
+                    start.await();
+                    return registry.acquire(KEY, factory());
+                });
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, created.get());
+
+        for (Future<?> future : futures) {
+            ((SharedDataSource) future.get()).close();
+        }
+        assertEquals(1, closed.get());
+    }
+
+    @Test
+    void lastReferenceIsKeptForDraining() throws Exception {
+        SharedDataSource first = registry.acquire(KEY, factory());
+        SharedDataSource second = registry.acquire(KEY, factory());
+
+        assertTrue(first.releaseIfShared());
+        assertTrue(first.releaseIfShared());
+        assertFalse(second.releaseIfShared());
+        assertEquals(0, closed.get());
+
+        second.close();
+        assertEquals(1, closed.get());
+    }
+
+    @Test
+    void concurrentReleaseKeepsExactlyOneLastReference() throws Exception {
+        int threads = 8;
+        SharedDataSource[] handles = new SharedDataSource[threads];
+        for (int i = 0; i < threads; i++) {
+            handles[i] = registry.acquire(KEY, factory());
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger kept = new AtomicInteger();
+        try {
+            Future<?>[] futures = new Future<?>[threads];
+            for (int i = 0; i < threads; i++) {
+                SharedDataSource handle = handles[i];
+                futures[i] = executor.submit(() -> {
+                    start.await();
+                    if (!handle.releaseIfShared()) {
+                        kept.incrementAndGet();
+                    }
+                    return null;
+                });
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, kept.get());
+        assertEquals(0, closed.get());
+
+        for (SharedDataSource handle : handles) {
+            handle.close();
+        }
+        assertEquals(1, closed.get());
+    }
+
+    @Test
+    void keyIgnoresParameterOrderButSeparatesIsolationModes() {
+        DataSourceProperty first = property("jdbc:mysql://db:3306/app?useSSL=false&characterEncoding=utf8");
+        DataSourceProperty second = property("jdbc:mysql://db:3306/app?characterEncoding=utf8&useSSL=false");
+        assertEquals(PhysicalPoolRegistry.keyOf(first, "hikari", true),
+            PhysicalPoolRegistry.keyOf(second, "hikari", true));
+        assertNotEquals(PhysicalPoolRegistry.keyOf(first, "hikari", true),
+            PhysicalPoolRegistry.keyOf(first, "hikari", false));
+        assertNotEquals(PhysicalPoolRegistry.keyOf(first, "hikari", true),
+            PhysicalPoolRegistry.keyOf(first, "druid", true));
+    }
+
+    private Supplier<DataSource> factory() {
+        return () -> {
+            created.incrementAndGet();
+            return (DataSource) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] {DataSource.class, Closeable.class}, (proxy, method, args) -> {
+                    if ("close".equals(method.getName())) {
+                        closed.incrementAndGet();
+                        return null;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+        };
+    }
+
+    private static DataSourceProperty property(String url) {
+        DataSourceProperty property = new DataSourceProperty();
+        property.setUrl(url);
+        property.setUsername("app");
+        property.setPassword("secret");
+        return property;
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2022. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.huawei.saas.config.dynamicdatasource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.Closeable;
+import java.lang.reflect.Proxy;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+/**
+ * 连接池排空测试
+ *
+ * @since 2022-4-22
+ */
+class PoolDrainTaskTest {
+    private static final long WAIT_MILLIS = 10000L;
+
+    private final ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1);
+
+    private final Set<PoolDrainTask> pending = ConcurrentHashMap.newKeySet();
+
+    @AfterEach
+    void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    void idleDataSourceIsClosed() throws InterruptedException {
+        SnapshotDataSource dataSource = new SnapshotDataSource(null, closeablePool(), false);
+        new PoolDrainTask(dataSource, "ds", WAIT_MILLIS, scheduler, pending, true).start();
+        awaitClosed(dataSource);
+    }
+
+    @Test
+    void waitsForRequestStillAcquiringLease() throws InterruptedException {
+        SnapshotDataSource dataSource = new SnapshotDataSource(null, closeablePool(), false);
+        dataSource.getStatistics().leaseStarted();
+        new PoolDrainTask(dataSource, "ds", WAIT_MILLIS, scheduler, pending, true).start();
+        assertTrue(dataSource.isDraining());
+
+        Thread.sleep(500L);
+        assertFalse(dataSource.isClosed());
+        dataSource.getStatistics().leaseFinished();
+        awaitClosed(dataSource);
+    }
+
+    @Test
+    void evictionDrainNeverForceCloses() throws InterruptedException {
+        SnapshotDataSource dataSource = new SnapshotDataSource(null, closeablePool(), false);
+        dataSource.getStatistics().checkedOut();
+        new PoolDrainTask(dataSource, "ds", 0L, scheduler, pending, false).start();
+
+        Thread.sleep(500L);
+        assertFalse(dataSource.isClosed());
+        dataSource.getStatistics().checkedIn();
+        awaitClosed(dataSource);
+    }
+
+    @Test
+    void refreshDrainForceClosesAfterTimeout() throws InterruptedException {
+        SnapshotDataSource dataSource = new SnapshotDataSource(null, closeablePool(), false);
+        dataSource.getStatistics().checkedOut();
+        new PoolDrainTask(dataSource, "ds", 0L, scheduler, pending, true).start();
+        awaitClosed(dataSource);
+    }
+
+    @Test
+    void lastSharedReferenceIsDrainedBeforeClosingPool() throws InterruptedException {
+        PhysicalPoolRegistry registry = new PhysicalPoolRegistry();
+        AtomicInteger poolsClosed = new AtomicInteger();
+        DataSource pool = closeablePool(poolsClosed);
+        SnapshotDataSource first = new SnapshotDataSource(null, registry.acquire("pool", () -> pool), false);
+        SnapshotDataSource second = new SnapshotDataSource(null, registry.acquire("pool", () -> pool), false);
+        second.getStatistics().checkedOut();
+
+        new PoolDrainTask(first, "first", WAIT_MILLIS, scheduler, pending, true).start();
+        new PoolDrainTask(second, "second", WAIT_MILLIS, scheduler, pending, true).start();
+        Thread.sleep(500L);
+        assertTrue(first.isClosed());
+        assertFalse(second.isClosed());
+        assertEquals(0, poolsClosed.get());
+
+        second.getStatistics().checkedIn();
+        awaitClosed(second);
+        assertEquals(1, poolsClosed.get());
+    }
+
+    private void awaitClosed(SnapshotDataSource dataSource) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(WAIT_MILLIS);
+        while ((!dataSource.isClosed() || !pending.isEmpty()) && System.nanoTime() < deadline) {
+            Thread.sleep(10L);
+        }
+        assertTrue(dataSource.isClosed());
+        assertTrue(pending.isEmpty());
+    }
+
+    private static DataSource closeablePool() {
+        return closeablePool(new AtomicInteger());
+    }
+
+    private static DataSource closeablePool(AtomicInteger closed) {
+        return (DataSource) Proxy.newProxyInstance(PoolDrainTaskTest.class.getClassLoader(),
+            new Class<?>[] {DataSource.class, Closeable.class}, (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "close":
+                        closed.incrementAndGet();
+                        return null;
+                    case "unwrap":
+                        return null;
+                    case "isWrapperFor":
+                        return Boolean.FALSE;
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                }
+            });
+    }
+}
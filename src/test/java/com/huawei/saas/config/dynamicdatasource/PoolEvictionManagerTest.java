@@ -0,0 +1,142 @@
+/*
+ * Copyright 2022. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.huawei.saas.config.dynamicdatasource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.huawei.saas.config.balancestrategy.RandomLoadBalanceStrategy;
+import com.huawei.saas.properties.DynamicSourceProperties;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+/**
+ * 空闲连接池回收测试
+ *
+ * @since 2022-4-22
+ */
+class PoolEvictionManagerTest {
+    private final DynamicSourceProperties properties = new DynamicSourceProperties();
+
+    private final List<DataSourceGroup> groups = new ArrayList<>();
+
+    private final List<DataSourceGroup> evicted = new ArrayList<>();
+
+    private final PoolEvictionManager manager = new PoolEvictionManager(() -> groups, properties, evicted::add);
+
+    @Test
+    void idleGroupIsEvicted() throws InterruptedException {
+        properties.setIdleEvictTime(1L);
+        DataSourceGroup idle = group("idle", member(stubPool()));
+        Thread.sleep(5L);
+
+        manager.run();
+        assertEquals(Collections.singletonList(idle), evicted);
+    }
+
+    @Test
+    void groupWithConnectionsInUseIsNotEvictedWhenIdle() throws InterruptedException {
+        properties.setIdleEvictTime(1L);
+        SnapshotDataSource checkedOut = member(stubPool());
+        checkedOut.getStatistics().checkedOut();
+        group("checkedOut", checkedOut);
+        SnapshotDataSource acquiring = member(stubPool());
+        acquiring.getStatistics().acquireStarted();
+        group("acquiring", acquiring);
+        Thread.sleep(5L);
+
+        manager.run();
+        assertTrue(evicted.isEmpty());
+    }
+
+    @Test
+    void budgetSkipsGroupsInUse() throws InterruptedException {
+        properties.setMaxOpenPools(1);
+        SnapshotDataSource busy = member(stubPool());
+        busy.getStatistics().checkedOut();
+        group("oldest", busy);
+        Thread.sleep(5L);
+        DataSourceGroup older = group("older", member(stubPool()));
+        Thread.sleep(5L);
+        group("newest", member(stubPool()));
+
+        manager.run();
+        assertEquals(Collections.singletonList(older), evicted);
+    }
+
+    @Test
+    void sharedPoolIsCountedOnce() {
+        properties.setMaxOpenPools(1);
+        PhysicalPoolRegistry registry = new PhysicalPoolRegistry();
+        DataSource pool = stubPool();
+        for (int i = 0; i < 3; i++) {
+            group("group" + i, member(registry.acquire("pool", () -> pool)));
+        }
+
+        manager.run();
+        assertTrue(evicted.isEmpty());
+    }
+
+    @Test
+    void budgetEvictsOnlyGroupsThatClosePools() throws InterruptedException {
+        properties.setMaxOpenPools(2);
+        PhysicalPoolRegistry registry = new PhysicalPoolRegistry();
+        DataSource sharedWithNewest = stubPool();
+        DataSource sharedByIdle = stubPool();
+        group("keepsPool", member(registry.acquire("newest", () -> sharedWithNewest)));
+        Thread.sleep(5L);
+        DataSourceGroup first = group("first", member(registry.acquire("idle", () -> sharedByIdle)));
+        Thread.sleep(5L);
+        DataSourceGroup second = group("second", member(registry.acquire("idle", () -> sharedByIdle)));
+        Thread.sleep(5L);
+        group("own", member(stubPool()));
+        Thread.sleep(5L);
+        group("newest", member(registry.acquire("newest", () -> sharedWithNewest)));
+
+        // 3个连接池超过上限2，最旧的组释放引用后连接池仍被最新的组使用，不回收
+        manager.run();
+        assertEquals(Arrays.asList(first, second), evicted);
+    }
+
+    private DataSourceGroup group(String name, SnapshotDataSource... masters) {
+        DataSourceGroup group = new DataSourceGroup(name, false, new RandomLoadBalanceStrategy(),
+            Arrays.asList(masters), Collections.emptyList());
+        groups.add(group);
+        return group;
+    }
+
+    private static SnapshotDataSource member(DataSource pool) {
+        return new SnapshotDataSource(null, pool, false);
+    }
+
+    private static DataSource stubPool() {
+        return (DataSource) Proxy.newProxyInstance(PoolEvictionManagerTest.class.getClassLoader(),
+            new Class<?>[] {DataSource.class}, (proxy, method, args) -> {
+                if ("unwrap".equals(method.getName()) || "isWrapperFor".equals(method.getName())) {
+                    return "isWrapperFor".equals(method.getName()) ? Boolean.FALSE : null;
+                }
+                throw new UnsupportedOperationException(method.getName());
+            });
+    }
+}
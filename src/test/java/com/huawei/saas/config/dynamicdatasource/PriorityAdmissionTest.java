@@ -0,0 +1,142 @@
+/*
+ * Copyright 2022. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.huawei.saas.config.dynamicdatasource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 优先级准入排队与老化测试
+ *
+ * @since 2022-4-22
+ */
+class PriorityAdmissionTest {
+    private static final long NO_AGING = TimeUnit.HOURS.toMillis(1);
+
+    private static final long WAIT_MILLIS = 10000L;
+
+    private final PriorityAdmission admission = new PriorityAdmission(1);
+
+    private final List<String> grantOrder = Collections.synchronizedList(new ArrayList<>());
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void timesOutWhenFullAndKeepsCapacity() throws Exception {
+        assertEquals(0L, admission.acquire(0, NO_AGING, 0L));
+        assertThrows(SQLTransientConnectionException.class, () -> admission.acquire(0, NO_AGING, 20L));
+        assertEquals(0, admission.getWaiting());
+
+        admission.release();
+        assertEquals(0L, admission.acquire(0, NO_AGING, 0L));
+    }
+
+    @Test
+    void higherPriorityIsGrantedFirst() throws Exception {
+        admission.acquire(0, NO_AGING, 0L);
+        Future<?> low = enqueue("low", 0, NO_AGING, 1);
+        Future<?> high = enqueue("high", 5, NO_AGING, 2);
+
+        admission.release();
+        low.get(WAIT_MILLIS, TimeUnit.MILLISECONDS);
+        high.get(WAIT_MILLIS, TimeUnit.MILLISECONDS);
+        assertEquals(Arrays.asList("high", "low"), grantOrder);
+    }
+
+    @Test
+    void samePriorityIsFirstComeFirstServed() throws Exception {
+        admission.acquire(3, NO_AGING, 0L);
+        Future<?> first = enqueue("first", 3, NO_AGING, 1);
+        Future<?> second = enqueue("second", 3, NO_AGING, 2);
+
+        admission.release();
+        first.get(WAIT_MILLIS, TimeUnit.MILLISECONDS);
+        second.get(WAIT_MILLIS, TimeUnit.MILLISECONDS);
+        assertEquals(Arrays.asList("first", "second"), grantOrder);
+    }
+
+    @Test
+    void longWaitingLowPriorityAgesAhead() throws Exception {
+        long agingInterval = 10L;
+        admission.acquire(0, agingInterval, 0L);
+        Future<?> aged = enqueue("aged", 0, agingInterval, 1);
+        // 等待超过两个老化周期后，高一级的新请求排在其后
+        Thread.sleep(agingInterval * 5);
+        Future<?> fresh = enqueue("fresh", 1, agingInterval, 2);
+
+        admission.release();
+        aged.get(WAIT_MILLIS, TimeUnit.MILLISECONDS);
+        fresh.get(WAIT_MILLIS, TimeUnit.MILLISECONDS);
+        assertEquals(Arrays.asList("aged", "fresh"), grantOrder);
+    }
+
+    @Test
+    void releaseHandsOffWithoutLosingCapacity() throws Exception {
+        admission.acquire(0, NO_AGING, 0L);
+        Future<?> waiter = enqueue("waiter", 0, NO_AGING, 1);
+        admission.release();
+        waiter.get(WAIT_MILLIS, TimeUnit.MILLISECONDS);
+
+        assertEquals(0, admission.getWaiting());
+        assertEquals(0L, admission.acquire(0, NO_AGING, 0L));
+        assertThrows(SQLTransientConnectionException.class, () -> admission.acquire(0, NO_AGING, 0L));
+    }
+
+    /**
+     * 提交一个排队请求，获得名额后记录顺序并归还
+     *
+     * @param name 请求名
+     * @param priority 优先级
+     * @param agingInterval 老化周期，毫秒
+     * @param expectedWaiting 入队后的排队数
+     * @return 请求结果
+     * @throws InterruptedException 中断
+     */
+    private Future<?> enqueue(String name, int priority, long agingInterval, int expectedWaiting)
+        throws InterruptedException {
+        Future<?> future = executor.submit(() -> {
+            admission.acquire(priority, agingInterval, WAIT_MILLIS);
+            grantOrder.add(name);
+            admission.release();
+            return null;
+        });
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(WAIT_MILLIS);
+        while (admission.getWaiting() < expectedWaiting) {
+            assertTrue(System.nanoTime() < deadline, name + " was not queued");
+            Thread.sleep(1L);
+        }
+        return future;
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2022. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.huawei.saas.config.dynamicdatasource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 租户连接隔离测试
+ *
+ * @since 2022-4-22
+ */
+class TenantBulkheadTest {
+    private static final String TENANT = "tenant0";
+
+    private final TenantBulkhead bulkhead = new TenantBulkhead();
+
+    @Test
+    void rejectsBeyondLimitUntilReleased() throws Exception {
+        TenantBulkhead.Permits first = bulkhead.acquire(TENANT, 2, 0L);
+        TenantBulkhead.Permits second = bulkhead.acquire(TENANT, 2, 0L);
+        assertSame(first, second);
+        assertEquals(2, bulkhead.getInUse(TENANT));
+
+        assertThrows(SQLTransientConnectionException.class, () -> bulkhead.acquire(TENANT, 2, 0L));
+        assertEquals(1L, bulkhead.getRejections().get(TENANT));
+        assertEquals(2, bulkhead.getInUse(TENANT));
+
+        first.release();
+        assertNotNull(bulkhead.acquire(TENANT, 2, 0L));
+        assertEquals(2, bulkhead.getInUse(TENANT));
+    }
+
+    @Test
+    void idleTenantIsRemoved() throws Exception {
+        TenantBulkhead.Permits permits = bulkhead.acquire(TENANT, 1, 0L);
+        assertThrows(SQLTransientConnectionException.class, () -> bulkhead.acquire(TENANT, 1, 0L));
+        assertEquals(1L, bulkhead.getRejections().get(TENANT));
+
+        permits.release();
+        assertTrue(bulkhead.getRejections().isEmpty());
+        assertEquals(0, bulkhead.getInUse(TENANT));
+
+        TenantBulkhead.Permits renewed = bulkhead.acquire(TENANT, 1, 0L);
+        assertNotSame(permits, renewed);
+        assertEquals(1, bulkhead.getInUse(TENANT));
+    }
+
+    @Test
+    void tenantsAreIsolated() throws Exception {
+        bulkhead.acquire(TENANT, 1, 0L);
+        assertNotNull(bulkhead.acquire("tenant1", 1, 0L));
+        assertThrows(SQLTransientConnectionException.class, () -> bulkhead.acquire(TENANT, 1, 0L));
+    }
+
+    @Test
+    void unlimitedTenantIsNotTracked() throws Exception {
+        assertNull(bulkhead.acquire(TENANT, 0, 0L));
+        assertNull(bulkhead.acquire(null, 1, 0L));
+        assertEquals(0, bulkhead.getInUse(TENANT));
+    }
+
+    @Test
+    void waitingRequestGetsReleasedPermit() throws Exception {
+        TenantBulkhead.Permits held = bulkhead.acquire(TENANT, 1, 0L);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<TenantBulkhead.Permits> waiting = executor.submit(() -> bulkhead.acquire(TENANT, 1, 10000L));
+            Thread.sleep(20L);
+            held.release();
+            assertNotNull(waiting.get(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, bulkhead.getInUse(TENANT));
+    }
+
+    @Test
+    void concurrentAcquireNeverExceedsLimit() throws Exception {
+        int limit = 3;
+        int threads = 8;
+        AtomicInteger holding = new AtomicInteger();
+        AtomicInteger maxHolding = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            Future<?>[] futures = new Future<?>[threads];
+            for (int i = 0; i < threads; i++) {
+                futures[i] = executor.submit(() -> {
+                    start.await();
+                    for (int j = 0; j < 2000; j++) {
+                        TenantBulkhead.Permits permits;
+                        try {
+                            permits = bulkhead.acquire(TENANT, limit, 0L);
+                        } catch (SQLTransientConnectionException e) {
+                            continue;
+                        }
+                        maxHolding.accumulateAndGet(holding.incrementAndGet(), Math::max);
+                        holding.decrementAndGet();
+                        permits.release();
+                    }
+                    return null;
+                });
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertTrue(maxHolding.get() <= limit);
+        assertEquals(0, bulkhead.getInUse(TENANT));
+        assertTrue(bulkhead.getRejections().isEmpty());
+    }
+}
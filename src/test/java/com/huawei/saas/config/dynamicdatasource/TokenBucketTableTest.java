@@ -0,0 +1,119 @@
+/*
+ * Copyright 2022. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.huawei.saas.config.dynamicdatasource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 令牌桶表测试
+ *
+ * @since 2022-4-22
+ */
+class TokenBucketTableTest {
+    /**
+     * 每千秒一个令牌，测试期间不会补充
+     */
+    private static final double NO_REFILL_RATE = 0.001D;
+
+    private final TokenBucketTable table = new TokenBucketTable(1024);
+
+    @Test
+    void allowsBurstThenRejects() {
+        for (int i = 0; i < 5; i++) {
+            assertTrue(table.tryAcquire("a", NO_REFILL_RATE, 5));
+        }
+        assertFalse(table.tryAcquire("a", NO_REFILL_RATE, 5));
+    }
+
+    @Test
+    void burstDefaultsToRatePerSecond() {
+        for (int i = 0; i < 3; i++) {
+            assertTrue(table.tryAcquire("a", 3D, 0));
+        }
+        assertFalse(table.tryAcquire("a", 3D, 0));
+    }
+
+    @Test
+    void tokensRefillOverTime() throws InterruptedException {
+        assertTrue(table.tryAcquire("a", 100D, 1));
+        assertFalse(table.tryAcquire("a", 100D, 1));
+        Thread.sleep(30L);
+        assertTrue(table.tryAcquire("a", 100D, 1));
+    }
+
+    @Test
+    void nonPositiveRateIsUnlimited() {
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(table.tryAcquire("a", 0D, 1));
+        }
+        assertTrue(table.tryAcquire(null, NO_REFILL_RATE, 1));
+    }
+
+    @Test
+    void keysInDifferentSlotsAreIndependent() {
+        assertTrue(table.tryAcquire("a", NO_REFILL_RATE, 1));
+        assertFalse(table.tryAcquire("a", NO_REFILL_RATE, 1));
+        assertTrue(table.tryAcquire("b", NO_REFILL_RATE, 1));
+    }
+
+    @Test
+    void raisedLimitTakesEffectImmediately() {
+        assertTrue(table.tryAcquire("a", NO_REFILL_RATE, 1));
+        assertFalse(table.tryAcquire("a", NO_REFILL_RATE, 1));
+        assertTrue(table.tryAcquire("a", NO_REFILL_RATE, 2));
+    }
+
+    @Test
+    void concurrentAcquireGrantsExactlyBurst() throws Exception {
+        int burst = 100;
+        int threads = 8;
+        AtomicInteger granted = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            Future<?>[] futures = new Future<?>[threads];
+            for (int i = 0; i < threads; i++) {
+                futures[i] = executor.submit(() -> {
+                    start.await();
+                    for (int j = 0; j < burst; j++) {
+                        if (table.tryAcquire("a", NO_REFILL_RATE, burst)) {
+                            granted.incrementAndGet();
+                        }
+                    }
+                    return null;
+                });
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(burst, granted.get());
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2022. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.huawei.saas.config.health;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 熔断状态测试
+ *
+ * @since 2022-4-22
+ */
+class CircuitBreakerTest {
+    private static final int THRESHOLD = 3;
+
+    @Test
+    void opensOnlyAfterConsecutiveFailuresReachThreshold() {
+        CircuitBreaker breaker = new CircuitBreaker();
+        assertFalse(breaker.recordFailure(THRESHOLD));
+        assertFalse(breaker.recordFailure(THRESHOLD));
+        assertTrue(breaker.isSelectable());
+
+        assertTrue(breaker.recordFailure(THRESHOLD));
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.isSelectable());
+
+        // 已打开时继续失败不再报告状态变化
+        assertFalse(breaker.recordFailure(THRESHOLD));
+    }
+
+    @Test
+    void successResetsConsecutiveFailures() {
+        CircuitBreaker breaker = new CircuitBreaker();
+        breaker.recordFailure(THRESHOLD);
+        breaker.recordFailure(THRESHOLD);
+        breaker.recordSuccess();
+        assertEquals(0, breaker.getConsecutiveFailures());
+
+        assertFalse(breaker.recordFailure(THRESHOLD));
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void nonPositiveThresholdNeverOpens() {
+        CircuitBreaker breaker = new CircuitBreaker();
+        for (int i = 0; i < 100; i++) {
+            assertFalse(breaker.recordFailure(0));
+        }
+        assertTrue(breaker.isSelectable());
+    }
+
+    @Test
+    void halfOpenOnlyAfterOpenDuration() {
+        CircuitBreaker breaker = open();
+        assertFalse(breaker.tryHalfOpen(TimeUnit.HOURS.toMillis(1)));
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        assertTrue(breaker.tryHalfOpen(0));
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertFalse(breaker.isSelectable());
+        assertFalse(breaker.tryHalfOpen(0));
+    }
+
+    @Test
+    void halfOpenProbeClosesOrReopens() {
+        CircuitBreaker closed = open();
+        closed.tryHalfOpen(0);
+        assertTrue(closed.close());
+        assertTrue(closed.isSelectable());
+        assertEquals(0, closed.getConsecutiveFailures());
+
+        CircuitBreaker reopened = open();
+        reopened.tryHalfOpen(0);
+        assertTrue(reopened.reopen());
+        assertEquals(CircuitBreaker.State.OPEN, reopened.getState());
+        assertFalse(reopened.reopen());
+    }
+
+    @Test
+    void fallbackSuccessClosesOpenBreaker() {
+        CircuitBreaker breaker = open();
+        assertTrue(breaker.close());
+        assertTrue(breaker.isSelectable());
+        assertFalse(breaker.close());
+    }
+
+    @Test
+    void concurrentFailuresReportOpenOnce() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker();
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger transitions = new AtomicInteger();
+        try {
+            Future<?>[] futures = new Future<?>[threads];
+            for (int i = 0; i < threads; i++) {
+                futures[i] = executor.submit(() -> {
+                    start.await();
+                    for (int j = 0; j < 1000; j++) {
+                        if (breaker.recordFailure(THRESHOLD)) {
+                            transitions.incrementAndGet();
+                        }
+                    }
+                    return null;
+                });
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, transitions.get());
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    void poolWaitTimeoutIsNotConnectFailure() {
+        assertFalse(CircuitBreaker.isConnectFailure(new SQLTimeoutException("wait timeout")));
+        assertFalse(CircuitBreaker.isConnectFailure(new SQLTransientConnectionException("pool exhausted")));
+        assertTrue(CircuitBreaker.isConnectFailure(new SQLException("connection refused")));
+
+        // 等待超时附带建立连接失败的原因时计入失败
+        assertTrue(CircuitBreaker.isConnectFailure(
+            new SQLTimeoutException("wait timeout", new SQLException("connection refused"))));
+        assertFalse(CircuitBreaker.isConnectFailure(
+            new SQLException("interrupted", new InterruptedException())));
+    }
+
+    private static CircuitBreaker open() {
+        CircuitBreaker breaker = new CircuitBreaker();
+        for (int i = 0; i < THRESHOLD; i++) {
+            breaker.recordFailure(THRESHOLD);
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        return breaker;
+    }
+}